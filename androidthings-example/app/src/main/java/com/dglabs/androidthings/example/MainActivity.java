@@ -6,6 +6,8 @@ import android.os.Handler;
 import android.util.Log;
 
 import com.dglabs.hc595_led_matrix_driver.LEDMatrix;
+import com.dglabs.hc595_led_matrix_driver.ScrollingText;
+import com.dglabs.my9221_led_driver.AsyncLEDBar;
 import com.dglabs.my9221_led_driver.LEDBar;
 import com.dglabs.androidthings.example.sound.MusicNotes;
 import com.dglabs.tm1838_driver.TM1838Driver;
@@ -15,14 +17,13 @@ import com.google.android.things.pio.GpioCallback;
 import com.google.android.things.pio.PeripheralManagerService;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 public class MainActivity extends Activity {
 
     private static final String TAG = MainActivity.class.getSimpleName();
 
     private static final int INTERVAL_BETWEEN_BLINKS_MS = 1000;
+    private static final int INTERVAL_BETWEEN_SCROLL_STEPS_MS = 60;
     private static final long PLAYBACK_NOTE_DELAY = 400L;
 
     private static final String GPIO_LED_PIN_NAME = "BCM17";
@@ -50,8 +51,9 @@ public class MainActivity extends Activity {
     private Gpio mButtonGpio;
 
     private Speaker mSpeaker;
-    private LEDBar mLedBar;
+    private AsyncLEDBar mLedBar;
     private LEDMatrix mLedMatrix;
+    private ScrollingText mScroller;
     private TM1838Driver mSegDisplay;
 
     private long startTime;
@@ -89,12 +91,17 @@ public class MainActivity extends Activity {
 
             //mLedMatrix = new LEDMatrix(LED_MATRIX_RCLK_PIN_NAME, LED_MATRIX_SRCLK_PIN_NAME, LED_MATRIX_DI_PIN_NAME);
             //mLedMatrix.setFlipVertical(true);
+            if (mLedMatrix != null) {
+                mScroller = new ScrollingText(mLedMatrix);
+                mScroller.setText(SAMPLE);
+            }
 
             //mSegDisplay = new TM1838Driver(LED_SEG7_CLK_PIN_NAME, LED_SEG7_STB_PIN_NAME
             //        , LED_SEG7_DIO_PIN_NAME, TM1838Driver.BRIGHTNESS_LOW);
             mSegDisplay = new TM1838Driver("SPI0.0", TM1838Driver.BRIGHTNESS_MED);
+            mSegDisplay.setAlignment(TM1838Driver.ALIGN_LEFT);
 
-            /*mLedBar = new LEDBar(LED_BAR_DI_PIN_NAME, LED_BAR_DCLK_PIN_NAME, 10);
+            /*mLedBar = new AsyncLEDBar(new LEDBar(LED_BAR_DI_PIN_NAME, LED_BAR_DCLK_PIN_NAME, 10));
             mLedBar.clear();*/
 
             /*mDisplay = new NumericDisplay(DISPLAY7_DATA_PIN_NAME, DISPLAY7_CLK_PIN_NAME);
@@ -117,23 +124,22 @@ public class MainActivity extends Activity {
             Log.i(TAG, "GPIO changed, button pressed");
 
             mHandler.removeCallbacks(mBlinkRunnable);
+            mHandler.removeCallbacks(mScrollRunnable);
             mHandler.removeCallbacks(mPlaybackRunnable);
 
             if (!display) {
                 //mHandler.post(mPlaybackRunnable);
                 // Step 4. Repeat using a handler.
                 mHandler.post(mBlinkRunnable);
+                mHandler.post(mScrollRunnable);
             }
 
             display = !display;
 
             if (mLedBar != null) {
-                try {
-                    mLedBar.write(bitCount++, LEDBar.BRIGHTNESS_MED);
-                    bitCount %= mLedBar.getLedCount();
-                } catch (IOException ex) {
-                    Log.e(TAG, "Error write to LED", ex);
-                }
+                // posting does not block the callback, bar is written by its own thread
+                mLedBar.post(bitCount++, LEDBar.BRIGHTNESS_MED);
+                bitCount %= mLedBar.getLedCount();
             }
 
             /*if (mLedMatrix != null) {
@@ -169,6 +175,7 @@ public class MainActivity extends Activity {
 
         // Step 4. Remove handler events on close.
         mHandler.removeCallbacks(mBlinkRunnable);
+        mHandler.removeCallbacks(mScrollRunnable);
         mHandler.removeCallbacks(mPlaybackRunnable);
 
         // Step 5. Close the resource.
@@ -203,7 +210,6 @@ public class MainActivity extends Activity {
 
         if (mLedBar != null) {
             try {
-                mLedBar.clear();
                 mLedBar.close();
             } catch (IOException e) {
                 Log.e(TAG, "Error closing LEDBar", e);
@@ -233,7 +239,6 @@ public class MainActivity extends Activity {
         }
     }
 
-    int charIndex = 0;
     static final String SAMPLE = "Red Fox jumping";
 
     private Runnable mBlinkRunnable = new Runnable() {
@@ -248,18 +253,10 @@ public class MainActivity extends Activity {
                 // Step 3. Toggle the LED state
                 mLedGpio.setValue(!mLedGpio.getValue());
 
-                if (mLedMatrix != null) {
-                    char c = SAMPLE.charAt(charIndex++);
-                    charIndex %= SAMPLE.length();
-                    mLedMatrix.display(c);
-                }
-
-
                 if (mSegDisplay != null) {
                     try {
-                        Date d = new Date(System.currentTimeMillis() - startTime);
-                        final SimpleDateFormat format = new SimpleDateFormat("mmss");
-                        mSegDisplay.display(format.format(d), 1);
+                        final long seconds = (System.currentTimeMillis() - startTime) / 1000;
+                        mSegDisplay.displayTime((int)(seconds / 60 % 60), (int)(seconds % 60));
                     } catch (IOException ex) {
                         Log.e(TAG, "Error write to 7-seg LED", ex);
                     }
@@ -273,6 +270,18 @@ public class MainActivity extends Activity {
         }
     };
 
+    private Runnable mScrollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mScroller == null) {
+                return;
+            }
+            // text moves one column per step, layout is done once by setText
+            mScroller.step();
+            mHandler.postDelayed(mScrollRunnable, INTERVAL_BETWEEN_SCROLL_STEPS_MS);
+        }
+    };
+
     private double[] THEME;
 
     private Runnable mPlaybackRunnable = new Runnable() {
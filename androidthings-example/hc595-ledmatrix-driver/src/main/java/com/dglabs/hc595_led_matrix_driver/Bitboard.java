@@ -0,0 +1,184 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Drawing on 8x8 monochrome frames packed into a long, the format of {@link HC595Driver#display(long)}.
+ * Pixel (x, y) is bit y*8+x: row y is byte y, column x is bit x of that byte.
+ * All operations are pure functions on longs, nothing is allocated.
+ */
+public final class Bitboard {
+    public static final long EMPTY = 0L;
+    public static final long FULL = -1L;
+
+    private static final long COLUMN_0 = 0x0101010101010101L;
+
+    private Bitboard() {}
+
+    /**
+     * @return frame with single pixel set, EMPTY if pixel is outside of 8x8
+     */
+    public static long pixel(int x, int y) {
+        if ((x | y) < 0 || x > 7 || y > 7) return EMPTY;
+        return 1L << (y * 8 + x);
+    }
+
+    public static boolean get(long frame, int x, int y) { return (frame & pixel(x, y)) != 0; }
+
+    public static long set(long frame, int x, int y) { return frame | pixel(x, y); }
+
+    public static long clear(long frame, int x, int y) { return frame & ~pixel(x, y); }
+
+    public static long toggle(long frame, int x, int y) { return frame ^ pixel(x, y); }
+
+    public static long or(long a, long b) { return a | b; }
+
+    public static long xor(long a, long b) { return a ^ b; }
+
+    /**
+     * @return a with pixels of b cleared
+     */
+    public static long mask(long a, long b) { return a & ~b; }
+
+    public static long invert(long frame) { return ~frame; }
+
+    public static int count(long frame) { return Long.bitCount(frame); }
+
+    /**
+     * Draw a line with Bresenham algorithm, pixels outside of 8x8 are clipped
+     */
+    public static long line(long frame, int x0, int y0, int x1, int y1) {
+        final int dx = Math.abs(x1 - x0), sx = x0 < x1 ? 1 : -1;
+        final int dy = -Math.abs(y1 - y0), sy = y0 < y1 ? 1 : -1;
+        int err = dx + dy;
+        while (true) {
+            frame |= pixel(x0, y0);
+            if (x0 == x1 && y0 == y1) return frame;
+            final int e2 = 2 * err;
+            if (e2 >= dy) { err += dy; x0 += sx; }
+            if (e2 <= dx) { err += dx; y0 += sy; }
+        }
+    }
+
+    /**
+     * Filled rectangle mask, clipped to 8x8
+     */
+    public static long fillRect(int x, int y, int width, int height) {
+        int x0 = Math.max(x, 0), x1 = Math.min(x + width, 8);
+        int y0 = Math.max(y, 0), y1 = Math.min(y + height, 8);
+        if (x0 >= x1 || y0 >= y1) return EMPTY;
+        final long row = ((1L << (x1 - x0)) - 1) << x0;
+        final long rows = y1 - y0 == 8 ? FULL : ((1L << ((y1 - y0) * 8)) - 1) << (y0 * 8);
+        return (row * COLUMN_0) & rows;
+    }
+
+    public static long fillRect(long frame, int x, int y, int width, int height) {
+        return frame | fillRect(x, y, width, height);
+    }
+
+    /**
+     * Rectangle outline, clipped to 8x8
+     */
+    public static long rect(long frame, int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return frame;
+        return frame | (fillRect(x, y, width, height) & ~fillRect(x + 1, y + 1, width - 2, height - 2));
+    }
+
+    /**
+     * Move all pixels, pixels moved out of 8x8 are lost
+     * @param dx columns to move towards higher x, negative to move towards lower x
+     * @param dy rows to move towards higher y, negative to move towards lower y
+     */
+    public static long shift(long frame, int dx, int dy) {
+        if (dx >= 8 || dx <= -8 || dy >= 8 || dy <= -8) return EMPTY;
+        if (dx > 0) frame = (frame << dx) & ~(((1L << dx) - 1) * COLUMN_0);
+        else if (dx < 0) frame = (frame >>> -dx) & ~(((0xFFL << (8 + dx)) & 0xFF) * COLUMN_0);
+        if (dy > 0) frame <<= dy * 8;
+        else if (dy < 0) frame >>>= -dy * 8;
+        return frame;
+    }
+
+    /**
+     * OR glyph over frame at given offset
+     */
+    public static long blit(long frame, long glyph, int dx, int dy) {
+        return frame | shift(glyph, dx, dy);
+    }
+
+    /**
+     * Mirror columns: x becomes 7-x
+     */
+    public static long flipX(long frame) {
+        frame = ((frame >>> 1) & 0x5555555555555555L) | ((frame & 0x5555555555555555L) << 1);
+        frame = ((frame >>> 2) & 0x3333333333333333L) | ((frame & 0x3333333333333333L) << 2);
+        frame = ((frame >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((frame & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return frame;
+    }
+
+    /**
+     * Mirror rows: y becomes 7-y
+     */
+    public static long flipY(long frame) { return Long.reverseBytes(frame); }
+
+    /**
+     * Swap x and y
+     */
+    public static long transpose(long frame) {
+        long t;
+        t = 0x0F0F0F0F00000000L & (frame ^ (frame << 28));
+        frame ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (frame ^ (frame << 14));
+        frame ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (frame ^ (frame << 7));
+        frame ^= t ^ (t >>> 7);
+        return frame;
+    }
+
+    /**
+     * Rotate 90 degrees clockwise (x to the right, y down): (x, y) moves to (7-y, x)
+     */
+    public static long rotate90(long frame) { return flipX(transpose(frame)); }
+
+    /**
+     * Rotate 180 degrees: (x, y) moves to (7-x, 7-y)
+     */
+    public static long rotate180(long frame) { return Long.reverse(frame); }
+
+    /**
+     * Rotate 270 degrees clockwise: (x, y) moves to (y, 7-x)
+     */
+    public static long rotate270(long frame) { return flipY(transpose(frame)); }
+
+    /**
+     * Rotate clockwise by multiple of 90 degrees
+     * @param degrees 0, 90, 180 or 270
+     */
+    public static long rotate(long frame, int degrees) {
+        switch (degrees) {
+            case 0: return frame;
+            case 90: return rotate90(frame);
+            case 180: return rotate180(frame);
+            case 270: return rotate270(frame);
+            default: throw new IllegalArgumentException("degrees should be 0, 90, 180 or 270");
+        }
+    }
+
+    /**
+     * Pack up to 8 row bytes, the format of {@link HC595Driver#display(int[])}
+     */
+    public static long fromRows(@NonNull int [] rows) {
+        long frame = 0;
+        for (int i = 0; i < rows.length && i < 8; i++) frame |= (long)(rows[i] & 0xFF) << (i * 8);
+        return frame;
+    }
+
+    /**
+     * Unpack frame into 8 row bytes
+     * @param rows destination, at least 8 elements
+     * @return rows
+     */
+    public static int [] toRows(long frame, @NonNull int [] rows) {
+        for (int i = 0; i < 8; i++) rows[i] = (int)(frame >>> (i * 8)) & 0xFF;
+        return rows;
+    }
+}
@@ -0,0 +1,284 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.support.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * 8x8 bitmap font, one {@link Bitboard} long per glyph.
+ * Glyphs are looked up by Unicode code point through a two level index: a page of 256 glyph
+ * numbers exists only for code point ranges having glyphs, so sparse fonts (ASCII, Cyrillic,
+ * symbols) take 8 bytes per glyph plus 512 bytes per used page and a reference per page up to
+ * the last used one. Lookup is O(1).
+ * Fonts can be loaded from PSF (version 1 and 2) and BDF files with glyphs up to 8x8 pixels.
+ * Not thread safe while glyphs are being added.
+ */
+public class PackedFont {
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private static final int PSF1_MAGIC = 0x0436;
+    private static final int PSF1_MODE512 = 0x01;
+    private static final int PSF1_MODEHASTAB = 0x02;
+    private static final int PSF1_MODEHASSEQ = 0x04;
+    private static final int PSF1_SEPARATOR = 0xFFFF;
+    private static final int PSF1_STARTSEQ = 0xFFFE;
+
+    private static final int PSF2_MAGIC = 0x864AB572;
+    private static final int PSF2_HAS_UNICODE_TABLE = 0x01;
+    private static final int PSF2_SEPARATOR = 0xFF;
+    private static final int PSF2_STARTSEQ = 0xFE;
+
+    private long [] glyphs;
+    private int count = 0;
+    // glyph number + 1 for every code point of a page, 0 if there is no glyph. null for empty pages.
+    // Grows up to the last used page.
+    private char [][] pages = new char[1][];
+    private long fallback = 0;
+
+    /**
+     * Create empty font, all code points are shown as blank fallback glyph
+     */
+    public PackedFont() {
+        glyphs = new long[16];
+    }
+
+    /**
+     * @return number of glyphs
+     */
+    public int getGlyphCount() { return count; }
+
+    /**
+     * @param glyph shown for code points missing in the font, blank by default
+     */
+    public void setFallback(long glyph) { fallback = glyph; }
+
+    public long getFallback() { return fallback; }
+
+    /**
+     * Add or replace glyph
+     * @param codePoint Unicode code point
+     * @param glyph glyph in {@link Bitboard} format
+     */
+    public void put(int codePoint, long glyph) {
+        if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT) throw new IllegalArgumentException("invalid code point " + codePoint);
+        if (codePoint >> PAGE_BITS >= pages.length) {
+            final char [][] larger = new char[(codePoint >> PAGE_BITS) + 1][];
+            System.arraycopy(pages, 0, larger, 0, pages.length);
+            pages = larger;
+        }
+        char [] page = pages[codePoint >> PAGE_BITS];
+        if (page == null) {
+            page = new char[PAGE_SIZE];
+            pages[codePoint >> PAGE_BITS] = page;
+        }
+        final int index = page[codePoint & (PAGE_SIZE - 1)];
+        if (index != 0) {
+            glyphs[index - 1] = glyph;
+            return;
+        }
+        if (count == Character.MAX_VALUE - 1) throw new IllegalStateException("too many glyphs");
+        if (count == glyphs.length) {
+            final long [] larger = new long[glyphs.length * 2];
+            System.arraycopy(glyphs, 0, larger, 0, count);
+            glyphs = larger;
+        }
+        glyphs[count++] = glyph;
+        page[codePoint & (PAGE_SIZE - 1)] = (char)count;
+    }
+
+    public boolean contains(int codePoint) {
+        return glyphIndex(codePoint) >= 0;
+    }
+
+    /**
+     * @param codePoint Unicode code point
+     * @return glyph in {@link Bitboard} format, fallback glyph if missing
+     */
+    public long get(int codePoint) {
+        final int index = glyphIndex(codePoint);
+        return index >= 0 ? glyphs[index] : fallback;
+    }
+
+    private int glyphIndex(int codePoint) {
+        if (codePoint < 0 || codePoint >> PAGE_BITS >= pages.length) return -1;
+        final char [] page = pages[codePoint >> PAGE_BITS];
+        return page == null ? -1 : page[codePoint & (PAGE_SIZE - 1)] - 1;
+    }
+
+    /**
+     * @return independent copy of the font
+     */
+    public PackedFont copy() {
+        final PackedFont result = new PackedFont();
+        result.glyphs = new long[Math.max(count, 1)];
+        System.arraycopy(glyphs, 0, result.glyphs, 0, count);
+        result.count = count;
+        result.pages = new char[pages.length][];
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] != null) result.pages[i] = pages[i].clone();
+        }
+        result.fallback = fallback;
+        return result;
+    }
+
+    long glyphAt(int index) { return glyphs[index]; }
+
+    void setGlyphAt(int index, long glyph) { glyphs[index] = glyph; }
+
+    /**
+     * Load PC Screen Font, version 1 or 2. Without Unicode table glyph number is used as code point.
+     * @param in font file stream, not closed
+     * @return loaded font
+     * @throws IOException on read error, unknown format or glyphs larger than 8x8
+     */
+    public static PackedFont loadPsf(@NonNull InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        final int b0 = data.readUnsignedByte(), b1 = data.readUnsignedByte();
+        if ((b0 | b1 << 8) == PSF1_MAGIC) return loadPsf1(data);
+        final int magic = b0 | b1 << 8 | data.readUnsignedByte() << 16 | data.readUnsignedByte() << 24;
+        if (magic == PSF2_MAGIC) return loadPsf2(data);
+        throw new IOException("not a PSF font");
+    }
+
+    private static PackedFont loadPsf1(DataInputStream data) throws IOException {
+        final int mode = data.readUnsignedByte();
+        final int height = data.readUnsignedByte();
+        final int length = (mode & PSF1_MODE512) != 0 ? 512 : 256;
+        final long [] loaded = readPsfGlyphs(data, length, height, 8, height);
+        final PackedFont font = new PackedFont();
+        if ((mode & (PSF1_MODEHASTAB | PSF1_MODEHASSEQ)) == 0) {
+            for (int i = 0; i < length; i++) font.put(i, loaded[i]);
+            return font;
+        }
+        for (int i = 0; i < length; i++) {
+            boolean sequence = false;
+            for (int u = readUInt16(data); u != PSF1_SEPARATOR; u = readUInt16(data)) {
+                // only single code points are mapped, combining sequences are skipped
+                if (u == PSF1_STARTSEQ) sequence = true;
+                else if (!sequence) font.put(u, loaded[i]);
+            }
+        }
+        return font;
+    }
+
+    private static PackedFont loadPsf2(DataInputStream data) throws IOException {
+        final int version = readUInt32(data);
+        final int headerSize = readUInt32(data);
+        final int flags = readUInt32(data);
+        final int length = readUInt32(data);
+        final int charSize = readUInt32(data);
+        final int height = readUInt32(data);
+        final int width = readUInt32(data);
+        if (version != 0 || headerSize < 32 || length < 0) throw new IOException("unsupported PSF2 header");
+        data.skipBytes(headerSize - 32);
+        final long [] loaded = readPsfGlyphs(data, length, height, width, charSize);
+        final PackedFont font = new PackedFont();
+        if ((flags & PSF2_HAS_UNICODE_TABLE) == 0) {
+            for (int i = 0; i < length; i++) font.put(i, loaded[i]);
+            return font;
+        }
+        for (int i = 0; i < length; i++) {
+            boolean sequence = false;
+            for (int b = data.readUnsignedByte(); b != PSF2_SEPARATOR; b = data.readUnsignedByte()) {
+                if (b == PSF2_STARTSEQ) {
+                    sequence = true;
+                    continue;
+                }
+                // UTF-8 encoded code point
+                int extra = b >= 0xF0 ? 3 : b >= 0xE0 ? 2 : b >= 0xC0 ? 1 : 0;
+                int codePoint = extra == 0 ? b : b & (0x3F >> extra);
+                while (extra-- > 0) codePoint = codePoint << 6 | (data.readUnsignedByte() & 0x3F);
+                if (!sequence) font.put(codePoint, loaded[i]);
+            }
+        }
+        return font;
+    }
+
+    private static long [] readPsfGlyphs(DataInputStream data, int length, int height, int width, int charSize) throws IOException {
+        if (width > 8 || height > 8) throw new IOException("glyphs larger than 8x8 are not supported");
+        final int bytesPerRow = (width + 7) / 8;
+        if (charSize < bytesPerRow * height) throw new IOException("invalid glyph size");
+        final long [] result = new long[length];
+        for (int i = 0; i < length; i++) {
+            long glyph = 0;
+            for (int y = 0; y < height; y++) {
+                // leftmost pixel is the most significant bit
+                glyph |= (long)(Integer.reverse(data.readUnsignedByte()) >>> 24) << (y * 8);
+            }
+            data.skipBytes(charSize - bytesPerRow * height);
+            result[i] = glyph;
+        }
+        return result;
+    }
+
+    private static int readUInt16(DataInputStream data) throws IOException {
+        return data.readUnsignedByte() | data.readUnsignedByte() << 8;
+    }
+
+    private static int readUInt32(DataInputStream data) throws IOException {
+        return readUInt16(data) | readUInt16(data) << 16;
+    }
+
+    /**
+     * Load Glyph Bitmap Distribution Format font. Glyphs are placed in 8x8 cell by font bounding box,
+     * glyphs without Unicode encoding are skipped.
+     * @param reader font file reader, not closed
+     * @return loaded font
+     * @throws IOException on read error, invalid format or font bounding box larger than 8x8
+     */
+    public static PackedFont loadBdf(@NonNull Reader reader) throws IOException {
+        final BufferedReader in = new BufferedReader(reader);
+        final PackedFont font = new PackedFont();
+        int cellX = 0, baseline = 8;
+        int encoding = -1;
+        int width = 0, height = 0, offsetX = 0, offsetY = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            final String [] f = line.trim().split("\\s+");
+            try {
+                if (f[0].equals("FONTBOUNDINGBOX")) {
+                    if (Integer.parseInt(f[1]) > 8 || Integer.parseInt(f[2]) > 8) throw new IOException("fonts larger than 8x8 are not supported");
+                    cellX = Integer.parseInt(f[3]);
+                    // rows above baseline
+                    baseline = Integer.parseInt(f[2]) + Integer.parseInt(f[4]);
+                }
+                else if (f[0].equals("ENCODING")) {
+                    encoding = Integer.parseInt(f[1]);
+                }
+                else if (f[0].equals("BBX")) {
+                    width = Integer.parseInt(f[1]);
+                    height = Integer.parseInt(f[2]);
+                    offsetX = Integer.parseInt(f[3]);
+                    offsetY = Integer.parseInt(f[4]);
+                }
+                else if (f[0].equals("BITMAP")) {
+                    final int top = baseline - height - offsetY;
+                    final int left = offsetX - cellX;
+                    long glyph = 0;
+                    for (int y = 0; y < height; y++) {
+                        final String row = in.readLine();
+                        if (row == null) throw new IOException("unexpected end of BDF font");
+                        final String hex = row.trim();
+                        final long bits = Long.parseLong(hex, 16);
+                        for (int x = 0; x < width && x < hex.length() * 4; x++) {
+                            if (((bits >>> (hex.length() * 4 - 1 - x)) & 1) != 0) glyph |= Bitboard.pixel(left + x, top + y);
+                        }
+                    }
+                    if (encoding >= 0) font.put(encoding, glyph);
+                }
+                else if (f[0].equals("ENDCHAR")) {
+                    encoding = -1;
+                }
+            }
+            catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                throw new IOException("invalid BDF line: " + line, ex);
+            }
+        }
+        return font;
+    }
+}
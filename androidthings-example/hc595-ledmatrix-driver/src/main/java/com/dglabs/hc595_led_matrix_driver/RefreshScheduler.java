@@ -0,0 +1,185 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.os.Debug;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces refresh thread of multiplexed display.
+ * Every frame is divided into equal time slots (a row takes one or more), after each row is latched the thread
+ * parks until the slot deadline. When the thread is late by more than a frame the schedule is
+ * restarted instead of bursting to catch up. Achieved frame rate and CPU load of the refresh thread
+ * are measured over one second windows.
+ * Row write times, frame periods and wake up jitter are recorded into {@link RefreshStats}
+ * histograms without allocation. Only the refresh thread records, any thread may take snapshots.
+ */
+class RefreshScheduler {
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long MEASURE_WINDOW_NANOS = NANOS_PER_SECOND;
+
+    private long slotNanos;
+    private long frameNanos;
+    private long deadline;
+
+    private long windowStart;
+    private long windowCpuStart;
+    private int windowFrames;
+    private long windowWriteNanos;
+    private int windowWrites;
+
+    private volatile float achievedRate = 0;
+    private volatile float cpuLoad = 0;
+    private volatile long writeNanos = 0;
+
+    private long frameStart;
+    // written by refresh thread only, lazySet keeps recording cheap and reads atomic
+    private final AtomicLongArray rowHistogram = new AtomicLongArray(RefreshStats.BUCKET_COUNT);
+    private final AtomicLongArray frameHistogram = new AtomicLongArray(RefreshStats.BUCKET_COUNT);
+    private volatile long maxRowJitter = 0;
+    private volatile long maxFrameJitter = 0;
+    private volatile long maxRowNanos = 0;
+    private volatile long maxFrameNanos = 0;
+    private volatile boolean resetRequested = false;
+
+    /**
+     * @param rateHz target frames per second
+     * @param slotsPerFrame number of equal time slots in a frame
+     */
+    RefreshScheduler(int rateHz, int slotsPerFrame) {
+        setTargetRate(rateHz, slotsPerFrame);
+    }
+
+    void setTargetRate(int rateHz, int slotsPerFrame) {
+        if (rateHz <= 0) throw new IllegalArgumentException("rateHz should be positive");
+        frameNanos = NANOS_PER_SECOND / rateHz;
+        slotNanos = frameNanos / slotsPerFrame;
+    }
+
+    /**
+     * @return duration of one time slot in nanoseconds
+     */
+    long getSlotNanos() { return slotNanos; }
+
+    /**
+     * @return target frame period in nanoseconds
+     */
+    long getFrameNanos() { return frameNanos; }
+
+    /**
+     * Start pacing from now
+     */
+    void start() {
+        deadline = System.nanoTime();
+        frameStart = deadline;
+        windowStart = deadline;
+        windowCpuStart = Debug.threadCpuTimeNanos();
+        windowFrames = 0;
+        windowWriteNanos = 0;
+        windowWrites = 0;
+    }
+
+    /**
+     * Account duration of one write to the display, averaged over measure window
+     */
+    void addWriteTime(long nanos) {
+        windowWriteNanos += nanos;
+        windowWrites++;
+        increment(rowHistogram, RefreshStats.bucketOf(nanos));
+        if (nanos > maxRowNanos) maxRowNanos = nanos;
+    }
+
+    /**
+     * Park until the end of current slot(s)
+     * @param slots number of slots to wait for, counted from the previous deadline
+     */
+    void awaitSlots(long slots) {
+        deadline += slotNanos * slots;
+        long now = System.nanoTime();
+        if (now - deadline > frameNanos) {
+            // too late, do not try to catch up
+            deadline = now;
+            return;
+        }
+        while (deadline - now > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(deadline - now);
+            now = System.nanoTime();
+        }
+        if (now - deadline > maxRowJitter) maxRowJitter = now - deadline;
+    }
+
+    /**
+     * Count finished frame and update measurements
+     */
+    void endFrame() {
+        windowFrames++;
+        final long now = System.nanoTime();
+        if (resetRequested) {
+            resetRequested = false;
+            for (int b = 0; b < RefreshStats.BUCKET_COUNT; b++) {
+                rowHistogram.lazySet(b, 0);
+                frameHistogram.lazySet(b, 0);
+            }
+            maxRowJitter = maxFrameJitter = 0;
+            maxRowNanos = maxFrameNanos = 0;
+        }
+        else {
+            final long period = now - frameStart;
+            increment(frameHistogram, RefreshStats.bucketOf(period));
+            if (period > maxFrameNanos) maxFrameNanos = period;
+            final long jitter = Math.abs(period - frameNanos);
+            if (jitter > maxFrameJitter) maxFrameJitter = jitter;
+        }
+        frameStart = now;
+        final long elapsed = now - windowStart;
+        if (elapsed >= MEASURE_WINDOW_NANOS) {
+            final long cpu = Debug.threadCpuTimeNanos();
+            achievedRate = windowFrames * (float)NANOS_PER_SECOND / elapsed;
+            cpuLoad = (cpu - windowCpuStart) / (float)elapsed;
+            if (windowWrites > 0) writeNanos = windowWriteNanos / windowWrites;
+            windowStart = now;
+            windowCpuStart = cpu;
+            windowFrames = 0;
+            windowWriteNanos = 0;
+            windowWrites = 0;
+        }
+    }
+
+    /**
+     * @return frames per second measured over the last window
+     */
+    float getAchievedRate() { return achievedRate; }
+
+    /**
+     * @return CPU time of the refresh thread relative to wall time over the last window, 1.0 is one core
+     */
+    float getCpuLoad() { return cpuLoad; }
+
+    /**
+     * @return average write duration over the last window, nanoseconds
+     */
+    long getWriteNanos() { return writeNanos; }
+
+    /**
+     * Clear histograms and jitter at the end of the current frame
+     */
+    void requestReset() { resetRequested = true; }
+
+    /**
+     * @param ioErrors number of failed writes to report
+     * @return copy of current statistics
+     */
+    RefreshStats snapshot(long ioErrors) {
+        final long [] rows = new long[RefreshStats.BUCKET_COUNT];
+        final long [] frames = new long[RefreshStats.BUCKET_COUNT];
+        for (int b = 0; b < RefreshStats.BUCKET_COUNT; b++) {
+            rows[b] = rowHistogram.get(b);
+            frames[b] = frameHistogram.get(b);
+        }
+        return new RefreshStats(rows, frames, maxRowNanos, maxFrameNanos, maxRowJitter, maxFrameJitter, achievedRate, ioErrors);
+    }
+
+    private static void increment(AtomicLongArray histogram, int bucket) {
+        histogram.lazySet(bucket, histogram.get(bucket) + 1);
+    }
+}
@@ -0,0 +1,147 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import java.util.Locale;
+
+/**
+ * Snapshot of refresh thread statistics, see {@link HC595Driver#getRefreshStats()}.
+ * Row write and frame times are counted in power of two histograms: bucket b holds times
+ * from 2^(b-1) up to 2^b nanoseconds, bucket 0 holds zero times, the last one all longer times.
+ * Jitter is how late the refresh thread woke up after a row slot deadline, and how far a frame
+ * period was from the target one.
+ */
+public class RefreshStats {
+    /**
+     * number of histogram buckets, the last one starts at about 1 second
+     */
+    public static final int BUCKET_COUNT = 32;
+
+    private final long [] rowHistogram;
+    private final long [] frameHistogram;
+    private final long maxRowNanos;
+    private final long maxFrameNanos;
+    private final long maxRowJitterNanos;
+    private final long maxFrameJitterNanos;
+    private final float framesPerSecond;
+    private final long ioErrors;
+
+    RefreshStats(long [] rowHistogram, long [] frameHistogram, long maxRowNanos, long maxFrameNanos, long maxRowJitterNanos, long maxFrameJitterNanos, float framesPerSecond, long ioErrors) {
+        this.rowHistogram = rowHistogram;
+        this.frameHistogram = frameHistogram;
+        this.maxRowNanos = maxRowNanos;
+        this.maxFrameNanos = maxFrameNanos;
+        this.maxRowJitterNanos = maxRowJitterNanos;
+        this.maxFrameJitterNanos = maxFrameJitterNanos;
+        this.framesPerSecond = framesPerSecond;
+        this.ioErrors = ioErrors;
+    }
+
+    static int bucketOf(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * @return exclusive upper bound of histogram bucket, nanoseconds; Long.MAX_VALUE for the last
+     * bucket, see {@link #getMaxRowNanos()} and {@link #getMaxFrameNanos()} for its actual times
+     */
+    public static long getBucketLimitNanos(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * @return number of row writes per bucket
+     */
+    public long [] getRowHistogram() { return rowHistogram.clone(); }
+
+    /**
+     * @return number of frames per bucket of frame period
+     */
+    public long [] getFrameHistogram() { return frameHistogram.clone(); }
+
+    public long getRowCount() { return sum(rowHistogram); }
+
+    public long getFrameCount() { return sum(frameHistogram); }
+
+    /**
+     * @return longest row write, nanoseconds
+     */
+    public long getMaxRowNanos() { return maxRowNanos; }
+
+    /**
+     * @return longest frame period, nanoseconds
+     */
+    public long getMaxFrameNanos() { return maxFrameNanos; }
+
+    public long getMaxRowJitterNanos() { return maxRowJitterNanos; }
+
+    public long getMaxFrameJitterNanos() { return maxFrameJitterNanos; }
+
+    /**
+     * @return frames per second over the last second
+     */
+    public float getFramesPerSecond() { return framesPerSecond; }
+
+    /**
+     * @return number of failed row writes
+     */
+    public long getIOErrors() { return ioErrors; }
+
+    /**
+     * @param percent 0-100
+     * @return upper bound of the bucket holding given percentile of row write times, the longest
+     * write for the last bucket, 0 without data
+     */
+    public long getRowPercentileNanos(double percent) { return percentile(rowHistogram, percent, maxRowNanos); }
+
+    /**
+     * @param percent 0-100
+     * @return upper bound of the bucket holding given percentile of frame periods, the longest
+     * period for the last bucket, 0 without data
+     */
+    public long getFramePercentileNanos(double percent) { return percentile(frameHistogram, percent, maxFrameNanos); }
+
+    private static long sum(long [] histogram) {
+        long result = 0;
+        for (long count : histogram) result += count;
+        return result;
+    }
+
+    private static long percentile(long [] histogram, double percent, long max) {
+        final int bucket = percentileBucket(histogram, percent);
+        if (bucket < 0) return 0;
+        // the last bucket has no upper bound
+        return bucket == BUCKET_COUNT - 1 ? max : getBucketLimitNanos(bucket);
+    }
+
+    /**
+     * @return bucket holding given percentile, -1 without data
+     */
+    private static int percentileBucket(long [] histogram, double percent) {
+        final long total = sum(histogram);
+        if (total == 0) return -1;
+        final long rank = (long)Math.ceil(total * percent / 100);
+        long seen = 0;
+        for (int b = 0; b < histogram.length; b++) {
+            seen += histogram[b];
+            if (seen >= rank && seen > 0) return b;
+        }
+        return histogram.length - 1;
+    }
+
+    /**
+     * @return "<limit" for a bucket, "<=max" for the last one, microseconds
+     */
+    private static String formatPercentile(long [] histogram, double percent, long max) {
+        final int bucket = percentileBucket(histogram, percent);
+        if (bucket == BUCKET_COUNT - 1) return "<=" + max / 1000 + "us";
+        return "<" + percentile(histogram, percent, max) / 1000 + "us";
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "fps=%.1f frames=%d row p50%s p99%s frame p50%s p99%s jitter row=%dus frame=%dus ioErrors=%d",
+                framesPerSecond, getFrameCount(),
+                formatPercentile(rowHistogram, 50, maxRowNanos), formatPercentile(rowHistogram, 99, maxRowNanos),
+                formatPercentile(frameHistogram, 50, maxFrameNanos), formatPercentile(frameHistogram, 99, maxFrameNanos),
+                maxRowJitterNanos / 1000, maxFrameJitterNanos / 1000, ioErrors);
+    }
+}
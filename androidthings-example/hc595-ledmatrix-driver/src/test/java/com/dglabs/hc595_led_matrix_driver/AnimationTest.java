@@ -0,0 +1,111 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class AnimationTest {
+
+    private static final long [][] FRAMES = {
+            {0x0000000000000001L, 0x8000000000000000L},
+            {0x0000000000000001L, 0x8000000000000000L},
+            {0x0000000000000001L, 0x8000000000000000L},
+            {0x00000000000000FFL, 0x8000000000000000L},
+            {0x00000000000000FFL, 0xFF00000000000000L},
+            {0x0123456789ABCDEFL, 0x0000000000000000L},
+    };
+    private static final int [] DURATIONS = {100, 100, 300, 100, 100, 20000};
+
+    private HC595Driver display;
+
+    @Before
+    public void setUp() throws Exception {
+        display = new HC595Driver(new SimulatedTransport(16), "RCLK", "SRCLK", "DI", 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        display.close();
+    }
+
+    private static byte [] write() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final AnimationWriter writer = new AnimationWriter(bytes, 2);
+        for (int i = 0; i < FRAMES.length; i++) writer.writeFrame(FRAMES[i], DURATIONS[i]);
+        assertEquals(FRAMES.length, writer.getFrameCount());
+        writer.close();
+        assertEquals(writer.getBytesWritten(), bytes.size());
+        return bytes.toByteArray();
+    }
+
+    private void assertPlays(AnimationPlayer player) throws IOException {
+        for (int i = 0; i < FRAMES.length; i++) {
+            assertTrue("frame " + i, player.next());
+            assertEquals("frame " + i, FRAMES[i][0], display.getFrame(0));
+            assertEquals("frame " + i, FRAMES[i][1], display.getFrame(1));
+            assertEquals("frame " + i, DURATIONS[i], player.getFrameDuration());
+        }
+    }
+
+    @Test
+    public void stream_playsWrittenFrames() throws Exception {
+        final AnimationPlayer player = new AnimationPlayer(display, new ByteArrayInputStream(write()));
+        try {
+            assertPlays(player);
+            assertFalse(player.next());
+            assertEquals(FRAMES.length, player.getFramesPlayed());
+        }
+        finally {
+            player.close();
+        }
+    }
+
+    @Test
+    public void buffer_loopsFromBlankFrame() throws Exception {
+        final AnimationPlayer player = new AnimationPlayer(display, ByteBuffer.wrap(write()));
+        player.setLooping(true);
+        assertPlays(player);
+        assertPlays(player);
+        assertEquals(FRAMES.length * 2, player.getFramesPlayed());
+    }
+
+    @Test
+    public void writer_encodesRepeatsAndChangedRowsOnly() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final AnimationWriter writer = new AnimationWriter(bytes, 1);
+        for (int i = 0; i < 1000; i++) writer.writeFrame(Bitboard.pixel(3, 4), 40);
+        writer.writeFrame(Bitboard.pixel(3, 4) | Bitboard.pixel(0, 7), 40);
+        writer.close();
+        assertArrayEquals(new byte[] {
+                'L', 'M', 'A', 1, 1,
+                // delta: duration 40, row 4 changed
+                0x01, 40, 0x10, 0x08,
+                // repeat: 999 times, duration 40
+                0x02, (byte)0xE7, 0x07, 40,
+                // delta: duration 40, row 7 changed
+                0x01, 40, (byte)0x80, 0x01,
+                0x00
+        }, bytes.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void player_rejectsMoreModulesThanDisplay() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new AnimationWriter(bytes, 3).close();
+        new AnimationPlayer(display, new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void stream_cannotLoop() throws Exception {
+        new AnimationPlayer(display, new ByteArrayInputStream(write())).setLooping(true);
+    }
+}
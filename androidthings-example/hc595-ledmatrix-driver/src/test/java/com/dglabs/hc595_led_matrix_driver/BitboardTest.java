@@ -0,0 +1,75 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitboardTest {
+
+    private static final long SAMPLE = 0x0123456789ABCDEFL;
+
+    @Test
+    public void pixel_isBitOfRowByte() throws Exception {
+        assertEquals(1L, Bitboard.pixel(0, 0));
+        assertEquals(1L << 63, Bitboard.pixel(7, 7));
+        assertEquals(0x0400L, Bitboard.pixel(2, 1));
+        assertEquals(Bitboard.EMPTY, Bitboard.pixel(8, 0));
+        assertEquals(Bitboard.EMPTY, Bitboard.pixel(0, -1));
+        assertEquals(SAMPLE, Bitboard.fromRows(Bitboard.toRows(SAMPLE, new int[8])));
+    }
+
+    @Test
+    public void transforms_movePixels() throws Exception {
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                final long p = Bitboard.pixel(x, y);
+                assertEquals(Bitboard.pixel(7 - x, y), Bitboard.flipX(p));
+                assertEquals(Bitboard.pixel(x, 7 - y), Bitboard.flipY(p));
+                assertEquals(Bitboard.pixel(y, x), Bitboard.transpose(p));
+                assertEquals(Bitboard.pixel(7 - y, x), Bitboard.rotate90(p));
+                assertEquals(Bitboard.pixel(7 - x, 7 - y), Bitboard.rotate180(p));
+                assertEquals(Bitboard.pixel(y, 7 - x), Bitboard.rotate270(p));
+            }
+        }
+    }
+
+    @Test
+    public void transforms_areInvertible() throws Exception {
+        assertEquals(SAMPLE, Bitboard.flipX(Bitboard.flipX(SAMPLE)));
+        assertEquals(SAMPLE, Bitboard.transpose(Bitboard.transpose(SAMPLE)));
+        assertEquals(SAMPLE, Bitboard.rotate270(Bitboard.rotate90(SAMPLE)));
+        long frame = SAMPLE;
+        for (int i = 0; i < 4; i++) frame = Bitboard.rotate(frame, 90);
+        assertEquals(SAMPLE, frame);
+        assertEquals(Bitboard.rotate180(SAMPLE), Bitboard.rotate90(Bitboard.rotate90(SAMPLE)));
+        assertEquals(Bitboard.count(SAMPLE), Bitboard.count(Bitboard.rotate90(SAMPLE)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rotate_rejectsOtherAngles() throws Exception {
+        Bitboard.rotate(SAMPLE, 45);
+    }
+
+    @Test
+    public void shift_dropsPixelsMovedOut() throws Exception {
+        assertEquals(Bitboard.pixel(3, 5), Bitboard.shift(Bitboard.pixel(1, 2), 2, 3));
+        assertEquals(Bitboard.pixel(0, 0), Bitboard.shift(Bitboard.pixel(1, 2), -1, -2));
+        // columns do not wrap into the next row
+        assertEquals(Bitboard.EMPTY, Bitboard.shift(Bitboard.pixel(7, 3), 1, 0));
+        assertEquals(Bitboard.EMPTY, Bitboard.shift(Bitboard.pixel(0, 3), -1, 0));
+        assertEquals(40, Bitboard.count(Bitboard.shift(Bitboard.FULL, -3, 0)));
+        assertEquals(Bitboard.fillRect(0, 0, 8, 5), Bitboard.shift(Bitboard.FULL, 0, -3));
+        assertEquals(Bitboard.EMPTY, Bitboard.shift(Bitboard.FULL, 8, 0));
+    }
+
+    @Test
+    public void drawing_clipsTo8x8() throws Exception {
+        assertEquals(0x8040201008040201L, Bitboard.line(Bitboard.EMPTY, 0, 0, 7, 7));
+        assertEquals(0xFFL << 16, Bitboard.line(Bitboard.EMPTY, -2, 2, 9, 2));
+        assertEquals(Bitboard.FULL, Bitboard.fillRect(0, 0, 8, 8));
+        assertEquals(4, Bitboard.count(Bitboard.fillRect(6, 6, 4, 4)));
+        assertEquals(Bitboard.EMPTY, Bitboard.fillRect(8, 0, 2, 2));
+        assertEquals(28, Bitboard.count(Bitboard.rect(Bitboard.EMPTY, 0, 0, 8, 8)));
+        assertEquals(Bitboard.fillRect(1, 1, 2, 2), Bitboard.rect(Bitboard.EMPTY, 1, 1, 2, 2));
+    }
+}
@@ -0,0 +1,433 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.os.Process;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HC595DriverTest {
+
+    // row address bytes, active low
+    private static final int [] ADDRESS = {0xfe, 0xfd, 0xfb, 0xf7, 0xef, 0xdf, 0xbf, 0x7f};
+    // address bytes shifted LSB first when flipped vertically
+    private static final int [] REVERSED_ADDRESS = {0x7f, 0xbf, 0xdf, 0xef, 0xf7, 0xfb, 0xfd, 0xfe};
+
+    private static final long FRAME_0 = Bitboard.fromRows(new int[] {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80});
+    private static final long FRAME_1 = Bitboard.fromRows(new int[] {0xF0, 0x00, 0x0F, 0x00, 0xAA, 0x00, 0x55, 0x81});
+
+    private SimulatedTransport transport;
+    private HC595Driver driver;
+
+    @Before
+    public void setUp() throws Exception {
+        transport = new SimulatedTransport(1 << 20);
+        driver = new HC595Driver(transport, "RCLK", "SRCLK", "DI");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        driver.close();
+    }
+
+    private static void awaitWrites(SimulatedTransport transport, long writes) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 2000;
+        while (transport.getPinWriteCount() + transport.getSpiWriteCount() < writes && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitIdle(boolean idle) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 2000;
+        while (driver.isIdle() != idle && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(idle, driver.isIdle());
+    }
+
+    private long writes() {
+        return transport.getPinWriteCount() + transport.getSpiWriteCount();
+    }
+
+    /**
+     * Let refresh thread scan a few more frames, then stop it
+     */
+    private void scan() throws Exception {
+        awaitWrites(transport, transport.getPinWriteCount() + transport.getSpiWriteCount() + 3000);
+        driver.close();
+    }
+
+    /**
+     * Decode pin trace into latched rows: DI sampled on SRCLK rising edges MSB first, row ends on RCLK rising edge
+     */
+    private static List<int []> gpioRows(SimulatedTransport transport) {
+        final List<int []> rows = new ArrayList<>();
+        final List<Integer> bytes = new ArrayList<>();
+        boolean di = false, srclk = false, rclk = false;
+        int b = 0, bits = 0;
+        for (int i = 0; i < transport.getPinTraceLength(); i++) {
+            final String pin = transport.getPinTracePin(i).getName();
+            final boolean value = transport.getPinTraceValue(i);
+            if (pin.equals("DI")) di = value;
+            else if (pin.equals("SRCLK")) {
+                if (value && !srclk) {
+                    b = (b << 1) | (di ? 1 : 0);
+                    if (++bits % 8 == 0) {
+                        bytes.add(b & 0xFF);
+                        b = 0;
+                    }
+                }
+                srclk = value;
+            }
+            else if (pin.equals("RCLK")) {
+                if (value && !rclk) {
+                    assertEquals("whole bytes per row", 0, bits % 8);
+                    final int [] row = new int[bytes.size()];
+                    for (int j = 0; j < row.length; j++) row[j] = bytes.get(j);
+                    rows.add(row);
+                    bytes.clear();
+                }
+                rclk = value;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Split SPI trace into rows of given length
+     */
+    private static List<int []> spiRows(byte [] trace, int length) {
+        assertEquals(0, trace.length % length);
+        final List<int []> rows = new ArrayList<>();
+        for (int i = 0; i < trace.length; i += length) {
+            final int [] row = new int[length];
+            for (int j = 0; j < length; j++) row[j] = trace[i + j] & 0xFF;
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Last two scans of the trace should carry byte y of scan ordered frames with address y,
+     * farthest module first. Earlier rows may still show frames or settings being replaced
+     */
+    private static void assertRows(List<int []> rows, long [] scanFrames, int [] addresses) {
+        assertTrue("two scans latched, got " + rows.size() + " rows", rows.size() >= 2 * addresses.length);
+        int scanned = 0;
+        for (int [] row : rows.subList(rows.size() - 2 * addresses.length, rows.size())) {
+            assertEquals(scanFrames.length * 2, row.length);
+            int y = 0;
+            while (y < addresses.length && addresses[y] != row[1]) y++;
+            assertTrue("row address " + row[1], y < addresses.length);
+            for (int m = 0; m < scanFrames.length; m++) {
+                final int i = (scanFrames.length - 1 - m) * 2;
+                assertEquals("module " + m + " row " + y, (int)(scanFrames[m] >>> (y * 8)) & 0xFF, row[i]);
+                assertEquals(addresses[y], row[i + 1]);
+            }
+            scanned |= 1 << y;
+        }
+        assertEquals("all rows scanned", 0xFF, scanned);
+    }
+
+    /**
+     * Last two scans of grayscale frame: every address is latched once per shown plane,
+     * least significant plane first
+     */
+    private static void assertPlanes(List<int []> rows, long [] scanPlanes, int [] addresses) {
+        final int depth = scanPlanes.length;
+        assertTrue("two scans latched, got " + rows.size() + " rows", rows.size() >= 2 * depth * addresses.length);
+        final List<int []> scans = rows.subList(rows.size() - 2 * depth * addresses.length, rows.size());
+        for (int r = 0; r < scans.size(); r++) {
+            final int y = (r / depth) % addresses.length;
+            final int p = r % depth;
+            assertArrayEquals("row " + y + " plane " + p,
+                    new int[] {(int)(scanPlanes[p] >>> (y * 8)) & 0xFF, addresses[y]}, scans.get(r));
+        }
+    }
+
+    @Test
+    public void gpio_scansRowsBottomUp() throws Exception {
+        driver.display(FRAME_1);
+        scan();
+        // address y shows frame row 7-y
+        assertRows(gpioRows(transport), new long[] {Bitboard.flipY(FRAME_1)}, ADDRESS);
+    }
+
+    @Test
+    public void flipVertical_shiftsAddressAndDataLsbFirst() throws Exception {
+        driver.setFlipVertical(true);
+        driver.display(FRAME_1);
+        scan();
+        assertRows(gpioRows(transport), new long[] {Bitboard.flipX(Bitboard.flipY(FRAME_1))}, REVERSED_ADDRESS);
+    }
+
+    @Test
+    public void flipHorizontal_scansRowsTopDown() throws Exception {
+        driver.setFlipHorizontal(true);
+        driver.display(FRAME_1);
+        scan();
+        assertRows(gpioRows(transport), new long[] {FRAME_1}, ADDRESS);
+    }
+
+    @Test
+    public void rotation_reorientsShownFrame() throws Exception {
+        driver.display(FRAME_1);
+        // frame published before the setting change is re-oriented too
+        driver.setRotation(90);
+        scan();
+        assertRows(gpioRows(transport), new long[] {Bitboard.flipY(Bitboard.rotate90(FRAME_1))}, ADDRESS);
+    }
+
+    @Test
+    public void getFrame_ignoresOrientation() throws Exception {
+        driver.display(FRAME_0);
+        driver.setRotation(270);
+        driver.setFlipVertical(true);
+        driver.setFlipHorizontal(true);
+        assertEquals(FRAME_0, driver.getFrame());
+        assertEquals(270, driver.getRotation());
+        driver.display(new int[] {0xFF, 0x81});
+        assertEquals((FRAME_0 & ~0xFFFFL) | 0x81FFL, driver.getFrame());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rotation_rejectsOtherAngles() throws Exception {
+        driver.setRotation(45);
+    }
+
+    @Test
+    public void ledMatrix_showsGlyphInAnyOrientation() throws Exception {
+        final LEDMatrix matrix = new LEDMatrix(new SimulatedTransport(1 << 12), "RCLK", "SRCLK", "DI");
+        try {
+            matrix.display('A');
+            assertEquals(LEDMatrix.glyph('A'), matrix.getFrame());
+            matrix.setRotation(180);
+            matrix.setFlipVertical(true);
+            matrix.display('Z');
+            assertEquals(LEDMatrix.glyph('Z'), matrix.getFrame());
+        }
+        finally {
+            matrix.close();
+        }
+    }
+
+    @Test
+    public void grayscale_latchesEveryPlaneOfRow() throws Exception {
+        final GrayBitmap bitmap = new GrayBitmap(2);
+        bitmap.setPixel(0, 0, 1);
+        bitmap.setPixel(1, 0, 2);
+        bitmap.setPixel(2, 0, 3);
+        assertEquals(0x05L, bitmap.getPlane(0));
+        assertEquals(0x06L, bitmap.getPlane(1));
+        driver.display(bitmap);
+        scan();
+        assertPlanes(gpioRows(transport), new long[] {Bitboard.flipY(0x05L), Bitboard.flipY(0x06L)}, ADDRESS);
+    }
+
+    @Test
+    public void grayscale_showsMostSignificantPlanes() throws Exception {
+        final GrayBitmap bitmap = new GrayBitmap(3);
+        bitmap.draw(Bitboard.fillRect(0, 0, 8, 4), 5);
+        bitmap.draw(Bitboard.fillRect(0, 4, 8, 4), 2);
+        assertEquals(5, bitmap.getPixel(7, 3));
+        driver.setBitDepth(1);
+        driver.display(bitmap);
+        scan();
+        assertRows(gpioRows(transport), new long[] {Bitboard.flipY(bitmap.getPlane(2))}, ADDRESS);
+    }
+
+    @Test
+    public void grayscale_replacedByMonochromeFrame() throws Exception {
+        final GrayBitmap bitmap = new GrayBitmap(4);
+        bitmap.draw(Bitboard.FULL, 9);
+        driver.display(bitmap);
+        driver.display(FRAME_0);
+        scan();
+        assertRows(gpioRows(transport), new long[] {Bitboard.flipY(FRAME_0)}, ADDRESS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bitDepth_rejectsMoreThanMaxDepth() throws Exception {
+        driver.setBitDepth(GrayBitmap.MAX_DEPTH + 1);
+    }
+
+    @Test
+    public void gpio_sendsDataThenAddressFarthestModuleFirst() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(1 << 20);
+        final HC595Driver driver = new HC595Driver(transport, "RCLK", "SRCLK", "DI", 2);
+        try {
+            driver.display(new long[] {FRAME_0, FRAME_1});
+            awaitWrites(transport, 6000);
+        }
+        finally {
+            driver.close();
+        }
+        assertRows(gpioRows(transport), new long[] {Bitboard.flipY(FRAME_0), Bitboard.flipY(FRAME_1)}, ADDRESS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void display_rejectsModuleOutOfChain() throws Exception {
+        driver.display(1, FRAME_0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void display_rejectsNegativeModule() throws Exception {
+        driver.display(-1, FRAME_0);
+    }
+
+    @Test
+    public void display_keepsFramesOfModules() throws Exception {
+        final HC595Driver driver = new HC595Driver(new SimulatedTransport(16), "RCLK", "SRCLK", "DI", 3);
+        try {
+            driver.display(new long[] {FRAME_0, FRAME_1});
+            driver.display(2, Bitboard.FULL);
+            assertEquals(3, driver.getModuleCount());
+            assertEquals(FRAME_0, driver.getFrame());
+            assertEquals(FRAME_1, driver.getFrame(1));
+            assertEquals(Bitboard.FULL, driver.getFrame(2));
+            // shorter array keeps the rest of the chain
+            driver.display(new long[] {FRAME_1});
+            assertEquals(FRAME_1, driver.getFrame(0));
+            assertEquals(Bitboard.FULL, driver.getFrame(2));
+        }
+        finally {
+            driver.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void display_rejectsMoreFramesThanModules() throws Exception {
+        driver.display(new long[] {FRAME_0, FRAME_1});
+    }
+
+    @Test
+    public void chain_drawsAcrossModules() throws Exception {
+        final LEDMatrixChain chain = new LEDMatrixChain(new SimulatedTransport(16), "RCLK", "SRCLK", "DI", 2);
+        try {
+            assertEquals(16, chain.getWidth());
+            chain.draw(Bitboard.fillRect(0, 0, 4, 1), 6, 2);
+            chain.setPixel(16, 0, true);
+            chain.setPixel(-1, 0, true);
+            assertTrue(chain.getPixel(9, 2));
+            assertFalse(chain.getPixel(10, 2));
+            // nothing is shown before show()
+            assertEquals(Bitboard.EMPTY, chain.getFrame(1));
+            chain.show();
+            assertEquals(Bitboard.pixel(6, 2) | Bitboard.pixel(7, 2), chain.getFrame(0));
+            assertEquals(Bitboard.pixel(0, 2) | Bitboard.pixel(1, 2), chain.getFrame(1));
+        }
+        finally {
+            chain.close();
+        }
+    }
+
+    @Test
+    public void blankFrame_latchedOnceThenParks() throws Exception {
+        awaitIdle(true);
+        final long writes = writes();
+        Thread.sleep(50);
+        assertEquals(writes, writes());
+        final List<int []> rows = gpioRows(transport);
+        assertArrayEquals(new int[] {0, 0xFF}, rows.get(rows.size() - 1));
+        assertTrue(driver.getIdleNanos() > 0);
+        // new content wakes the thread
+        driver.display(FRAME_1);
+        awaitIdle(false);
+        scan();
+        assertRows(gpioRows(transport), new long[] {Bitboard.flipY(FRAME_1)}, ADDRESS);
+    }
+
+    @Test
+    public void refreshPriority_refusedPriorityKeepsRefreshing() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        final HC595Driver refusing = new HC595Driver(ShiftOutput.openGpio(transport, "RCLK2", "SRCLK2", "DI2"), 1) {
+            @Override
+            void setThreadPriority(int priority) {
+                attempts.incrementAndGet();
+                throw new SecurityException("refused");
+            }
+        };
+        try {
+            refusing.display(FRAME_0);
+            refusing.setRefreshPriority(Process.THREAD_PRIORITY_URGENT_DISPLAY);
+            final long before = writes();
+            awaitWrites(transport, before + 3000);
+            assertTrue(writes() >= before + 3000);
+            // refused priority is not retried every frame
+            assertEquals(1, attempts.get());
+            assertEquals(Process.THREAD_PRIORITY_URGENT_DISPLAY, refusing.getRefreshPriority());
+        }
+        finally {
+            refusing.close();
+        }
+    }
+
+    @Test
+    public void suspend_blanksDisplayAndKeepsFrame() throws Exception {
+        driver.display(FRAME_1);
+        awaitIdle(false);
+        driver.suspend();
+        awaitIdle(true);
+        assertTrue(driver.isSuspended());
+        assertEquals(FRAME_1, driver.getFrame());
+        final List<int []> rows = gpioRows(transport);
+        assertArrayEquals(new int[] {0, 0xFF}, rows.get(rows.size() - 1));
+        final long writes = writes();
+        Thread.sleep(50);
+        assertEquals(writes, writes());
+        driver.resume();
+        assertFalse(driver.isSuspended());
+        awaitIdle(false);
+        scan();
+        assertRows(gpioRows(transport), new long[] {Bitboard.flipY(FRAME_1)}, ADDRESS);
+    }
+
+    @Test
+    public void clear_parksRefreshThread() throws Exception {
+        driver.display(FRAME_0);
+        awaitIdle(false);
+        driver.clear();
+        awaitIdle(true);
+        assertTrue(driver.getActiveNanos() > 0);
+    }
+
+    @Test
+    public void spi_sendsRowInOneWrite() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(1 << 16);
+        final HC595Driver driver = new HC595Driver(ShiftOutput.openSpi(transport, "SPI0.0", "RCLK"), 2);
+        try {
+            driver.display(new long[] {FRAME_0, FRAME_1});
+            awaitWrites(transport, 40);
+        }
+        finally {
+            driver.close();
+        }
+        final SimulatedTransport.SimulatedSpiBus bus = transport.getSpiBus("SPI0.0");
+        assertRows(spiRows(bus.getTrace(), 4), new long[] {Bitboard.flipY(FRAME_0), Bitboard.flipY(FRAME_1)}, ADDRESS);
+        // one latch pulse per row write
+        assertEquals(bus.getWriteCount() * 2, transport.getPin("RCLK").getTransitionCount());
+    }
+
+    @Test
+    public void spi_latchesByChipSelectWithoutGpio() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(1 << 16);
+        final HC595Driver driver = new HC595Driver(ShiftOutput.openSpi(transport, "SPI0.0"), 1);
+        try {
+            driver.display(FRAME_1);
+            awaitWrites(transport, 40);
+        }
+        finally {
+            driver.close();
+        }
+        assertRows(spiRows(transport.getSpiBus("SPI0.0").getTrace(), 2), new long[] {Bitboard.flipY(FRAME_1)}, ADDRESS);
+        assertEquals(0, transport.getPinWriteCount());
+    }
+}
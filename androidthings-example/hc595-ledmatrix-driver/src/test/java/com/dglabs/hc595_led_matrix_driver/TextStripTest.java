@@ -0,0 +1,59 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TextStripTest {
+
+    @Test
+    public void render_fixedWidthKeepsWholeCells() throws Exception {
+        final TextStrip strip = TextStrip.render("II", false, 0, false);
+        assertEquals(16, strip.getWidth());
+        assertEquals(LEDMatrix.glyph('I'), strip.window(0));
+        assertEquals(LEDMatrix.glyph('I'), strip.window(8));
+    }
+
+    @Test
+    public void render_variableWidthTrimsBlankColumns() throws Exception {
+        assertEquals(4, TextStrip.render("I", true, 1, false).getWidth());
+        assertEquals(TextStrip.SPACE_WIDTH, TextStrip.render(" ", true, 1, false).getWidth());
+        assertEquals(4 + 1 + TextStrip.SPACE_WIDTH + 1 + 4, TextStrip.render("I I", true, 1, false).getWidth());
+        assertEquals(0, TextStrip.render("", true, 1, false).getWidth());
+    }
+
+    @Test
+    public void render_kerningDropsGapBetweenApartGlyphs() throws Exception {
+        // facing columns of ' and . do not touch
+        assertEquals(5, TextStrip.render("'.", true, 1, true).getWidth());
+        assertEquals(6, TextStrip.render("'.", true, 1, false).getWidth());
+        // II touches, spacing is kept
+        assertEquals(9, TextStrip.render("II", true, 1, true).getWidth());
+    }
+
+    @Test
+    public void window_isBlankOutsideOfStrip() throws Exception {
+        final TextStrip strip = TextStrip.render("HELLO", true, 1, true);
+        assertEquals(Bitboard.EMPTY, strip.window(-8));
+        assertEquals(Bitboard.EMPTY, strip.window(strip.getWidth()));
+        assertEquals(0, strip.getColumn(-1));
+        assertEquals(0, strip.getColumn(strip.getWidth()));
+        for (int offset = -7; offset < strip.getWidth(); offset++) {
+            // one column to the left moves every column one pixel to the right
+            assertEquals("offset " + offset, Bitboard.shift(strip.window(offset + 1), 1, 0) | leftColumn(strip.getColumn(offset)),
+                    strip.window(offset));
+        }
+    }
+
+    // frame showing given column pixels at x = 0
+    private static long leftColumn(int column) {
+        long mask = 0;
+        for (int y = 0; y < 8; y++) if ((column & (1 << y)) != 0) mask |= Bitboard.pixel(0, y);
+        return mask;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void render_rejectsNegativeSpacing() throws Exception {
+        TextStrip.render("I", true, -1, false);
+    }
+}
@@ -0,0 +1,127 @@
+package com.dglabs.my9221_led_driver;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Non-blocking front end for {@link LEDBar}.
+ * Callers post frames from any thread, a dedicated writer thread sends them to the bar.
+ * Only the newest pending frame is kept: frames posted faster than the bus can take them are dropped.
+ */
+public class AsyncLEDBar implements Closeable {
+    private static final String TAG = AsyncLEDBar.class.getSimpleName();
+
+    private static final long NO_FRAME = -1;
+
+    private final LEDBar bar;
+    private final AtomicLong pending = new AtomicLong(NO_FRAME);
+    private final AtomicLong posted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile boolean stopping = false;
+
+    private final Thread writerThread = new Thread("AsyncLEDBar") {
+        @Override
+        public void run() {
+            boolean failing = false;
+            while (!stopping) {
+                final long frame = pending.getAndSet(NO_FRAME);
+                if (frame == NO_FRAME) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                try {
+                    bar.write((int)(frame & 0xFFFF), (int)(frame >>> 16) & 0xFF);
+                    written.incrementAndGet();
+                    failing = false;
+                }
+                catch (IOException ex) {
+                    errors.incrementAndGet();
+                    // a failing bus would flood the log, report the first error of a series only
+                    if (!failing) Log.e(TAG, "Error writing LED bar", ex);
+                    failing = true;
+                }
+            }
+        }
+    };
+
+    /**
+     * Start writer thread for the bar. The bar is owned by this object and closed by {@link #close()}.
+     * @param bar LED bar to write to
+     */
+    public AsyncLEDBar(@NonNull LEDBar bar) {
+        this.bar = bar;
+        writerThread.start();
+    }
+
+    public int getLedCount() { return bar.getLedCount(); }
+
+    /**
+     * Post new frame without blocking. Replaces pending frame if writer did not take it yet.
+     * @param value number of LEDs to highlight 0 - ledCount
+     * @param brightness bar brightness value (1-255)
+     * @throws IllegalArgumentException
+     */
+    public void post(int value, int brightness) throws IllegalArgumentException {
+        if (value < 0 || value > getLedCount()) throw new IllegalArgumentException("value should be in range 1-" + getLedCount());
+        // rejected here rather than by the writer thread, where nobody would see the exception
+        MY9221LEDDriver.checkBrightness(brightness);
+        final long frame = (value & 0xFFFF) | ((long)brightness << 16);
+        posted.incrementAndGet();
+        if (pending.getAndSet(frame) != NO_FRAME) dropped.incrementAndGet();
+        LockSupport.unpark(writerThread);
+    }
+
+    /**
+     * Post empty frame
+     */
+    public void clear() { post(0, 0); }
+
+    /**
+     * @return number of frames waiting for the writer, 0 or 1
+     */
+    public int getQueueDepth() { return pending.get() == NO_FRAME ? 0 : 1; }
+
+    /**
+     * @return number of posted frames
+     */
+    public long getPostedFrames() { return posted.get(); }
+
+    /**
+     * @return number of frames replaced by newer ones before they were written
+     */
+    public long getDroppedFrames() { return dropped.get(); }
+
+    /**
+     * @return number of frames passed to the bar
+     */
+    public long getWrittenFrames() { return written.get(); }
+
+    /**
+     * @return number of frames failed with IOException
+     */
+    public long getWriteErrors() { return errors.get(); }
+
+    /**
+     * Stop writer thread and close the bar. Pending frame is discarded.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        stopping = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        bar.close();
+    }
+}
@@ -0,0 +1,81 @@
+package com.dglabs.my9221_led_driver;
+
+import android.support.annotation.NonNull;
+
+import com.dglabs.pio_transport.Pin;
+
+import java.io.IOException;
+
+/**
+ * Bit-bangs MY9221 frames over DI/DCLK pins.
+ * Encoder remembers current DI and DCLK levels, so DI is written only when the next bit differs
+ * from the level already on the line. Long runs of equal bits cost one DCLK edge per bit.
+ */
+class GpioFrameEncoder extends MY9221FrameEncoder {
+    private final Pin mDI;
+    private final Pin mDCLK;
+    private boolean diLevel = false;
+    private boolean clkLevel = false;
+    private int calls = 0;
+
+    /**
+     * @param DI data input pin, initially low
+     * @param DCLK clock input pin, initially low
+     */
+    GpioFrameEncoder(@NonNull Pin DI, @NonNull Pin DCLK) {
+        mDI = DI;
+        mDCLK = DCLK;
+    }
+
+    @Override
+    void beginFrame() { calls = 0; }
+
+    @Override
+    int getCallCount() { return calls; }
+
+    /**
+     * Data is sampled on both DCLK edges, so each bit is one DCLK toggle.
+     */
+    @Override
+    void writeWord(int word) throws IOException {
+        for (int i = 15; i >= 0; i--) {
+            setDI(((word >> i) & 1) != 0);
+            mDCLK.setValue(clkLevel = !clkLevel);
+            calls++;
+        }
+    }
+
+    @Override
+    long latch(@NonNull LatchTiming timing, long delayNanos) throws IOException {
+        final long start = System.nanoTime();
+        setDI(false);
+        timing.await(delayNanos);
+        for (int i = 0; i < 8; i++) {
+            setDI(!diLevel);
+        }
+        timing.await(delayNanos);
+        return System.nanoTime() - start;
+    }
+
+    @Override
+    void reset() throws IOException {
+        mDI.setValue(diLevel = false);
+        mDCLK.setValue(clkLevel = false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            mDI.close();
+        }
+        finally {
+            mDCLK.close();
+        }
+    }
+
+    private void setDI(boolean level) throws IOException {
+        if (level == diLevel) return;
+        mDI.setValue(diLevel = level);
+        calls++;
+    }
+}
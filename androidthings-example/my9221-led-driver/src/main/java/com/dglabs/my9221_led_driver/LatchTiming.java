@@ -0,0 +1,56 @@
+package com.dglabs.my9221_led_driver;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How MY9221 driver waits while DCLK is idle around the internal latch sequence
+ */
+public enum LatchTiming {
+    /**
+     * Busy-spin on {@link System#nanoTime()}. Most precise, keeps the CPU busy for the whole delay.
+     */
+    SPIN {
+        @Override
+        void await(long nanos) {
+            final long deadline = System.nanoTime() + nanos;
+            while (System.nanoTime() - deadline < 0) {
+                // spin
+            }
+        }
+    },
+    /**
+     * {@link LockSupport#parkNanos(long)} until the deadline. Releases the CPU, may overshoot by scheduler latency.
+     */
+    PARK {
+        @Override
+        void await(long nanos) {
+            final long deadline = System.nanoTime() + nanos;
+            long left = nanos;
+            while (left > 0 && !Thread.currentThread().isInterrupted()) {
+                LockSupport.parkNanos(left);
+                left = deadline - System.nanoTime();
+            }
+        }
+    },
+    /**
+     * {@link Thread#sleep(long, int)}, the way driver used to wait. Millisecond scale jitter.
+     */
+    SLEEP {
+        @Override
+        void await(long nanos) {
+            try {
+                Thread.sleep(nanos / 1000000, (int)(nanos % 1000000));
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    };
+
+    /**
+     * Minimum DCLK idle time before latch pulses according to datasheet is 220us
+     */
+    public static final long DEFAULT_DELAY_NANOS = 220000;
+
+    abstract void await(long nanos);
+}
@@ -0,0 +1,115 @@
+package com.dglabs.my9221_led_driver;
+
+import android.support.annotation.NonNull;
+
+import com.dglabs.pio_transport.Pin;
+import com.dglabs.pio_transport.SpiBus;
+
+import java.io.IOException;
+
+/**
+ * Sends MY9221 frames over SPI: MOSI drives DI, SCLK drives DCLK, mode 0.
+ * MY9221 samples DI on both DCLK edges while MOSI changes once per SCLK period, so every SPI bit
+ * is received as a pair of equal bits. Each 16-bit word is encoded into the largest byte whose
+ * doubled bits do not exceed it, so brightness stays monotonic and words made of equal bit pairs
+ * are sent exactly. In 16 bit mode 256 distinct levels remain. An 8 bit word holds only 4 bit
+ * pairs, leaving 16 coarse levels, and 12 and 14 bit command words can not be sent at all, so
+ * this encoder supports 16 bit resolution only.
+ * Whole frame is buffered and sent with one SPI write before the latch.
+ */
+class SpiFrameEncoder extends MY9221FrameEncoder {
+    /**
+     * 4MHz SCLK shifts 13 bytes of one chip frame in 26us
+     */
+    static final int DEFAULT_FREQUENCY = 4000000;
+
+    private final SpiBus spi;
+    private final Pin mLatch;
+    private byte [] buffer = new byte[13];
+    private int length = 0;
+    private int calls = 0;
+
+    /**
+     * @param spi configured SPI device
+     * @param latch GPIO OR-ed with MOSI onto DI, initially low
+     */
+    SpiFrameEncoder(@NonNull SpiBus spi, @NonNull Pin latch) {
+        this.spi = spi;
+        this.mLatch = latch;
+    }
+
+    @Override
+    void beginFrame() {
+        length = 0;
+        calls = 0;
+    }
+
+    @Override
+    int getCallCount() { return calls; }
+
+    @Override
+    void writeWord(int word) throws IOException {
+        if (length == buffer.length) {
+            // grows until it fits the frame of the whole chain
+            final byte [] larger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, larger, 0, length);
+            buffer = larger;
+        }
+        buffer[length++] = (byte)encode(word);
+    }
+
+    /**
+     * @param word 16-bit word
+     * @return largest byte which the chip receives as a word not above the given one
+     */
+    static int encode(int word) {
+        int result = 0;
+        for (int pair = 7; pair >= 0; pair--) {
+            final int bits = (word >> (pair * 2)) & 0x03;
+            if (bits == 0x03) result |= 1 << pair;
+            // 01 or 10: this pair rounds down to 00, all lower pairs fit as 11
+            else if (bits != 0) return result | ((1 << pair) - 1);
+        }
+        return result;
+    }
+
+    @Override
+    long latch(@NonNull LatchTiming timing, long delayNanos) throws IOException {
+        final long start = System.nanoTime();
+        if (length > 0) {
+            spi.write(buffer, length);
+            calls++;
+            length = 0;
+        }
+        timing.await(delayNanos);
+        for (int i = 0; i < 4; i++) {
+            mLatch.setValue(true);
+            mLatch.setValue(false);
+            calls += 2;
+        }
+        timing.await(delayNanos);
+        return System.nanoTime() - start;
+    }
+
+    @Override
+    void reset() throws IOException {
+        length = 0;
+        mLatch.setValue(false);
+    }
+
+    @Override
+    boolean supportsResolution(int bits) { return bits == 16; }
+
+    @Override
+    int defaultResolution() { return 16; }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            spi.close();
+        }
+        finally {
+            mLatch.close();
+        }
+    }
+}
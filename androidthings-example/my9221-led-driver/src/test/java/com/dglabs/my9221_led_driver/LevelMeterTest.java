@@ -0,0 +1,131 @@
+package com.dglabs.my9221_led_driver;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class LevelMeterTest {
+
+    // 10 samples per frame, 1.5% full scale decay per frame, 50 frames peak hold
+    private static final int SAMPLE_RATE = 1000;
+    private static final int DISPLAY_RATE = 100;
+
+    /**
+     * Keeps the last written frame
+     */
+    private static class RecordingBar extends LEDBar {
+        int value = -1, peak = -1, brightness = -1, writes = 0;
+
+        RecordingBar() throws IOException {
+            super(new SimulatedTransport(1 << 12), "DI", "DCLK", 10);
+        }
+
+        @Override
+        public void write(int value, int peak, int brightness) throws IOException, IllegalArgumentException {
+            this.value = value;
+            this.peak = peak;
+            this.brightness = brightness;
+            writes++;
+        }
+    }
+
+    private RecordingBar bar;
+    private LevelMeter meter;
+
+    @Before
+    public void setUp() throws Exception {
+        bar = new RecordingBar();
+        meter = new LevelMeter(bar, SAMPLE_RATE, DISPLAY_RATE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        bar.close();
+    }
+
+    private void frames(float level, int count) throws IOException {
+        final float [] samples = new float[SAMPLE_RATE / DISPLAY_RATE];
+        for (int i = 0; i < samples.length; i++) samples[i] = i % 2 == 0 ? level : -level;
+        for (int i = 0; i < count; i++) meter.process(samples, 0, samples.length);
+    }
+
+    @Test
+    public void process_showsPeakOfWindow() throws Exception {
+        final float [] samples = new float[SAMPLE_RATE / DISPLAY_RATE];
+        samples[3] = -0.5f;
+        meter.process(samples, 0, samples.length - 1);
+        assertEquals(0, meter.getFrameCount());
+        meter.process(samples, samples.length - 1, 1);
+        assertEquals(1, meter.getFrameCount());
+        assertEquals(5, bar.value);
+        assertEquals(0, bar.peak);
+    }
+
+    @Test
+    public void level_decaysWhilePeakIsHeld() throws Exception {
+        frames(1f, 1);
+        assertEquals(10, bar.value);
+        assertEquals(0, bar.peak);
+        // 20 frames fall 30%, peak marker stays at the top
+        frames(0f, 20);
+        assertEquals(7, bar.value);
+        assertEquals(10, bar.peak);
+        assertEquals(0.7f, meter.getLevel(), 0.001f);
+    }
+
+    @Test
+    public void peak_decaysAfterHoldTime() throws Exception {
+        frames(1f, 1);
+        // level reaches 0 after 67 frames, marker is released after 50 frames and falls 20 frames more
+        frames(0f, 70);
+        assertEquals(0, bar.value);
+        assertEquals(7, bar.peak);
+        frames(0f, 100);
+        assertEquals(0, bar.value);
+        assertEquals(0, bar.peak);
+    }
+
+    @Test
+    public void peakHold_zeroDisablesMarker() throws Exception {
+        meter.setPeakHold(0);
+        frames(1f, 1);
+        frames(0f, 20);
+        assertEquals(7, bar.value);
+        assertEquals(0, bar.peak);
+    }
+
+    @Test
+    public void process_scalesShortSamples() throws Exception {
+        final short [] samples = new short[SAMPLE_RATE / DISPLAY_RATE];
+        samples[0] = Short.MIN_VALUE;
+        meter.process(samples, 0, samples.length);
+        assertEquals(10, bar.value);
+        samples[0] = 16384;
+        meter.setDecay(1000f);
+        meter.process(samples, 0, samples.length);
+        assertEquals(5, bar.value);
+    }
+
+    @Test
+    public void frame_writtenOnlyWhenLedsChange() throws Exception {
+        frames(0.5f, 10);
+        assertEquals(10, meter.getFrameCount());
+        assertEquals(1, meter.getEmittedFrameCount());
+        assertEquals(1, bar.writes);
+        meter.setBrightness(0x20);
+        frames(0.5f, 1);
+        assertEquals(2, bar.writes);
+        assertEquals(0x20, bar.brightness);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsDisplayRateAboveSampleRate() {
+        new LevelMeter(bar, DISPLAY_RATE, SAMPLE_RATE);
+    }
+}
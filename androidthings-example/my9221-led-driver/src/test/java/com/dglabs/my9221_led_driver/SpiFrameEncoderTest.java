@@ -0,0 +1,108 @@
+package com.dglabs.my9221_led_driver;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpiFrameEncoderTest {
+
+    // command word of 16-bit grey scale
+    private static final int CMD_16BIT = 0x0300;
+
+    // word the chip receives when every SPI bit is sampled on both DCLK edges
+    private static int doubled(int b) {
+        int word = 0;
+        for (int i = 0; i < 8; i++)
+            if ((b & (1 << i)) != 0) word |= 0x03 << (i * 2);
+        return word;
+    }
+
+    @Test
+    public void encode_isExactForWordsOfEqualPairs() throws Exception {
+        for (int b = 0; b < 256; b++)
+            assertEquals(b, SpiFrameEncoder.encode(doubled(b)));
+    }
+
+    @Test
+    public void encode_roundsDown() throws Exception {
+        for (int word = 0; word <= 0xFFFF; word++)
+            assertTrue("word " + word, doubled(SpiFrameEncoder.encode(word)) <= word);
+        assertEquals(0x7F, SpiFrameEncoder.encode(0x8000));
+        assertEquals(0x80, SpiFrameEncoder.encode(0xC000));
+    }
+
+    @Test
+    public void brightness_neverDecreases() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport();
+        final MY9221LEDDriver driver = new MY9221LEDDriver(MY9221FrameEncoder.openSpi(transport, "SPI0.0", "LATCH"), 1);
+        try {
+            int previous = -1;
+            for (int level = 0; level < 256; level++) {
+                driver.write(new int[] { level });
+                final byte [] trace = transport.getSpiBus("SPI0.0").getTrace();
+                // frame is the command byte followed by 12 channel bytes, channel 0 first
+                final int received = doubled(trace[trace.length - 12] & 0xFF);
+                assertTrue("level " + level + " encoded as " + received + " after " + previous, received >= previous);
+                previous = received;
+            }
+            assertEquals(0xFFFF, previous);
+        }
+        finally {
+            driver.close();
+        }
+    }
+
+    @Test
+    public void spi_sendsFrameInOneWrite() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(256);
+        final MY9221LEDDriver driver = new MY9221LEDDriver(MY9221FrameEncoder.openSpi(transport, "SPI0.0", "LATCH"), 2);
+        try {
+            final SimulatedTransport.SimulatedSpiBus bus = transport.getSpiBus("SPI0.0");
+            final int [] greyscale = new int[24];
+            greyscale[0] = 0xFF;
+            greyscale[23] = 0xFF;
+            driver.write(greyscale);
+            assertEquals(16, driver.getGreyscaleResolution());
+            assertEquals(1, bus.getWriteCount());
+            final byte [] expected = new byte[26];
+            // every byte bit becomes an equal bit pair of the received word
+            expected[0] = (byte)SpiFrameEncoder.encode(CMD_16BIT);
+            expected[12] = (byte)0xFF;
+            expected[13] = (byte)SpiFrameEncoder.encode(CMD_16BIT);
+            expected[14] = (byte)0xFF;
+            assertArrayEquals(expected, bus.getTrace());
+            assertEquals(0x10, expected[0]);
+            // 4 latch pulses, two transitions each
+            assertEquals(8, transport.getPinTraceLength());
+        }
+        finally {
+            driver.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void spi_rejects12BitResolution() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(256);
+        final MY9221LEDDriver driver = new MY9221LEDDriver(MY9221FrameEncoder.openSpi(transport, "SPI0.0", "LATCH"), 1);
+        try {
+            driver.setGreyscaleResolution(12);
+        }
+        finally {
+            driver.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void spi_rejects8BitResolution() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(256);
+        final MY9221LEDDriver driver = new MY9221LEDDriver(MY9221FrameEncoder.openSpi(transport, "SPI0.0", "LATCH"), 1);
+        try {
+            driver.setGreyscaleResolution(8);
+        }
+        finally {
+            driver.close();
+        }
+    }
+}
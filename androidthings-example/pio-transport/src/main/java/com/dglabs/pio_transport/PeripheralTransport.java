@@ -0,0 +1,115 @@
+package com.dglabs.pio_transport;
+
+import android.support.annotation.NonNull;
+
+import com.google.android.things.pio.Gpio;
+import com.google.android.things.pio.PeripheralManagerService;
+import com.google.android.things.pio.SpiDevice;
+
+import java.io.IOException;
+
+/**
+ * {@link Transport} backed by Android Things {@link PeripheralManagerService}
+ */
+public class PeripheralTransport implements Transport {
+
+    private final PeripheralManagerService service;
+
+    public PeripheralTransport() {
+        this(new PeripheralManagerService());
+    }
+
+    public PeripheralTransport(@NonNull PeripheralManagerService service) {
+        this.service = service;
+    }
+
+    @Override
+    public Pin openPin(@NonNull String name) throws IOException {
+        return new GpioPin(name, service.openGpio(name));
+    }
+
+    @Override
+    public SpiBus openSpiBus(@NonNull String name) throws IOException {
+        return new SpiDeviceBus(name, service.openSpiDevice(name));
+    }
+
+    private static class GpioPin implements Pin {
+        private final String name;
+        private final Gpio gpio;
+
+        GpioPin(String name, Gpio gpio) {
+            this.name = name;
+            this.gpio = gpio;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public void setDirection(int direction) throws IOException {
+            switch (direction) {
+                case DIRECTION_IN: gpio.setDirection(Gpio.DIRECTION_IN); break;
+                case DIRECTION_OUT_INITIALLY_HIGH: gpio.setDirection(Gpio.DIRECTION_OUT_INITIALLY_HIGH); break;
+                case DIRECTION_OUT_INITIALLY_LOW: gpio.setDirection(Gpio.DIRECTION_OUT_INITIALLY_LOW); break;
+                default: throw new IllegalArgumentException("Unknown direction " + direction);
+            }
+        }
+
+        @Override
+        public void setValue(boolean value) throws IOException { gpio.setValue(value); }
+
+        @Override
+        public boolean getValue() throws IOException { return gpio.getValue(); }
+
+        @Override
+        public void close() throws IOException { gpio.close(); }
+    }
+
+    private static class SpiDeviceBus implements SpiBus {
+        private final String name;
+        private final SpiDevice device;
+
+        SpiDeviceBus(String name, SpiDevice device) {
+            this.name = name;
+            this.device = device;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public void setMode(int mode) throws IOException {
+            switch (mode) {
+                case MODE0: device.setMode(SpiDevice.MODE0); break;
+                case MODE1: device.setMode(SpiDevice.MODE1); break;
+                case MODE2: device.setMode(SpiDevice.MODE2); break;
+                case MODE3: device.setMode(SpiDevice.MODE3); break;
+                default: throw new IllegalArgumentException("Unknown SPI mode " + mode);
+            }
+        }
+
+        @Override
+        public void setFrequency(int frequencyHz) throws IOException { device.setFrequency(frequencyHz); }
+
+        @Override
+        public void setDelay(int delayUs) throws IOException { device.setDelay(delayUs); }
+
+        @Override
+        public void setBitsPerWord(int bitsPerWord) throws IOException { device.setBitsPerWord(bitsPerWord); }
+
+        @Override
+        public void setBitJustification(boolean lsbFirst) throws IOException { device.setBitJustification(lsbFirst); }
+
+        @Override
+        public void setCsChange(boolean csChange) throws IOException { device.setCsChange(csChange); }
+
+        @Override
+        public void write(byte [] buffer, int length) throws IOException { device.write(buffer, length); }
+
+        @Override
+        public void read(byte [] buffer, int length) throws IOException { device.read(buffer, length); }
+
+        @Override
+        public void close() throws IOException { device.close(); }
+    }
+}
@@ -0,0 +1,408 @@
+package com.dglabs.pio_transport;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pure Java {@link Transport} which keeps pin levels and SPI traffic in memory.
+ * Every pin transition is recorded into a fixed size ring trace, every written SPI byte into a
+ * per bus ring, so drivers can be profiled (toggles per frame, frames per second, allocations)
+ * without hardware. Recording does not allocate once the transport is created.
+ */
+public class SimulatedTransport implements Transport {
+
+    private static final int DEFAULT_TRACE_CAPACITY = 64 * 1024;
+
+    private final Map<String, SimulatedPin> pinsByName = new HashMap<>();
+    private final List<SimulatedPin> pins = new ArrayList<>();
+    private final Map<String, SimulatedSpiBus> buses = new HashMap<>();
+
+    private final int traceCapacity;
+    private final int [] pinTrace;
+    private long pinTraceCount = 0;
+    private boolean traceEnabled = true;
+
+    private long pinWrites = 0;
+    private long pinTransitions = 0;
+    private long spiWrites = 0;
+    private long spiBytesWritten = 0;
+
+    public SimulatedTransport() {
+        this(DEFAULT_TRACE_CAPACITY);
+    }
+
+    /**
+     * @param traceCapacity number of last pin transitions and SPI bytes (per bus) to keep
+     */
+    public SimulatedTransport(int traceCapacity) {
+        if (traceCapacity <= 0) throw new IllegalArgumentException("traceCapacity should be positive");
+        this.traceCapacity = traceCapacity;
+        this.pinTrace = new int[traceCapacity];
+    }
+
+    @Override
+    public synchronized Pin openPin(@NonNull String name) throws IOException {
+        SimulatedPin pin = pinsByName.get(name);
+        if (pin == null) {
+            pin = new SimulatedPin(name, pins.size());
+            pinsByName.put(name, pin);
+            pins.add(pin);
+        }
+        else if (pin.open) throw new IOException("Pin " + name + " is already in use");
+        pin.open = true;
+        return pin;
+    }
+
+    @Override
+    public synchronized SpiBus openSpiBus(@NonNull String name) throws IOException {
+        SimulatedSpiBus bus = buses.get(name);
+        if (bus == null) {
+            bus = new SimulatedSpiBus(name, traceCapacity);
+            buses.put(name, bus);
+        }
+        else if (bus.open) throw new IOException("SPI device " + name + " is already in use");
+        bus.open = true;
+        return bus;
+    }
+
+    /**
+     * @return pin which was opened with given name or null
+     */
+    public synchronized SimulatedPin getPin(@NonNull String name) { return pinsByName.get(name); }
+
+    /**
+     * @return SPI bus which was opened with given name or null
+     */
+    public synchronized SimulatedSpiBus getSpiBus(@NonNull String name) { return buses.get(name); }
+
+    /**
+     * Enable or disable recording of pin transitions and SPI bytes. Counters are always updated.
+     */
+    public synchronized void setTraceEnabled(boolean traceEnabled) { this.traceEnabled = traceEnabled; }
+
+    public synchronized boolean isTraceEnabled() { return traceEnabled; }
+
+    /**
+     * @return total number of setValue() calls on all pins
+     */
+    public synchronized long getPinWriteCount() { return pinWrites; }
+
+    /**
+     * @return total number of pin level changes
+     */
+    public synchronized long getPinTransitionCount() { return pinTransitions; }
+
+    /**
+     * @return total number of SPI write() calls on all buses
+     */
+    public synchronized long getSpiWriteCount() { return spiWrites; }
+
+    /**
+     * @return total number of bytes written to all SPI buses
+     */
+    public synchronized long getSpiBytesWritten() { return spiBytesWritten; }
+
+    /**
+     * @return number of transitions available in the trace (up to trace capacity)
+     */
+    public synchronized int getPinTraceLength() {
+        return (int)Math.min(pinTraceCount, traceCapacity);
+    }
+
+    /**
+     * @param index 0 is the oldest transition kept in the trace
+     * @return pin which changed its level
+     */
+    public synchronized SimulatedPin getPinTracePin(int index) {
+        return pins.get(pinTrace[traceSlot(index)] >>> 1);
+    }
+
+    /**
+     * @param index 0 is the oldest transition kept in the trace
+     * @return new pin level
+     */
+    public synchronized boolean getPinTraceValue(int index) {
+        return (pinTrace[traceSlot(index)] & 1) != 0;
+    }
+
+    private int traceSlot(int index) {
+        int length = getPinTraceLength();
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        return (int)((pinTraceCount - length + index) % traceCapacity);
+    }
+
+    /**
+     * Clear traces and counters. Pin levels are preserved.
+     */
+    public synchronized void reset() {
+        pinTraceCount = 0;
+        pinWrites = pinTransitions = spiWrites = spiBytesWritten = 0;
+        for (SimulatedPin pin : pins) pin.writes = pin.transitions = 0;
+        for (SimulatedSpiBus bus : buses.values()) bus.resetTrace();
+    }
+
+    /**
+     * In-memory pin. Output level is recorded, input level is set with {@link #setInputValue(boolean)}.
+     */
+    public class SimulatedPin implements Pin {
+        private final String name;
+        private final int index;
+        private boolean open;
+        private int direction = DIRECTION_IN;
+        private boolean value = false;
+        private boolean inputValue = false;
+        private long writes, transitions;
+
+        SimulatedPin(String name, int index) {
+            this.name = name;
+            this.index = index;
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public void setDirection(int direction) throws IOException {
+            synchronized (SimulatedTransport.this) {
+                checkOpen();
+                switch (direction) {
+                    case DIRECTION_IN: break;
+                    case DIRECTION_OUT_INITIALLY_HIGH: change(true); break;
+                    case DIRECTION_OUT_INITIALLY_LOW: change(false); break;
+                    default: throw new IllegalArgumentException("Unknown direction " + direction);
+                }
+                this.direction = direction;
+            }
+        }
+
+        public int getDirection() {
+            synchronized (SimulatedTransport.this) { return direction; }
+        }
+
+        @Override
+        public void setValue(boolean value) throws IOException {
+            synchronized (SimulatedTransport.this) {
+                checkOpen();
+                writes++;
+                pinWrites++;
+                // input pins only latch the level until switched to output
+                if (direction == DIRECTION_IN) this.value = value;
+                else change(value);
+            }
+        }
+
+        @Override
+        public boolean getValue() throws IOException {
+            synchronized (SimulatedTransport.this) {
+                checkOpen();
+                return direction == DIRECTION_IN ? inputValue : value;
+            }
+        }
+
+        /**
+         * Set level seen by the driver while the pin is an input
+         */
+        public void setInputValue(boolean inputValue) {
+            synchronized (SimulatedTransport.this) { this.inputValue = inputValue; }
+        }
+
+        /**
+         * @return current output level
+         */
+        public boolean getOutputValue() {
+            synchronized (SimulatedTransport.this) { return value; }
+        }
+
+        /**
+         * @return number of setValue() calls on this pin
+         */
+        public long getWriteCount() {
+            synchronized (SimulatedTransport.this) { return writes; }
+        }
+
+        /**
+         * @return number of level changes on this pin
+         */
+        public long getTransitionCount() {
+            synchronized (SimulatedTransport.this) { return transitions; }
+        }
+
+        public boolean isOpen() {
+            synchronized (SimulatedTransport.this) { return open; }
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (SimulatedTransport.this) { open = false; }
+        }
+
+        private void change(boolean newValue) {
+            if (newValue == value) return;
+            value = newValue;
+            transitions++;
+            pinTransitions++;
+            if (traceEnabled) pinTrace[(int)(pinTraceCount++ % traceCapacity)] = (index << 1) | (newValue ? 1 : 0);
+        }
+
+        private void checkOpen() throws IOException {
+            if (!open) throw new IOException("Pin " + name + " is closed");
+        }
+    }
+
+    /**
+     * In-memory SPI bus. Written bytes are recorded, read bytes are taken from {@link #setReadData(byte[])}.
+     */
+    public class SimulatedSpiBus implements SpiBus {
+        private final String name;
+        private final byte [] trace;
+        private long traceCount = 0;
+        private boolean open;
+        private int mode = MODE0;
+        private int frequencyHz, delayUs, bitsPerWord = 8;
+        private boolean lsbFirst, csChange;
+        private byte [] readData = new byte[0];
+        private int readPosition = 0;
+        private long writes, bytesWritten;
+
+        SimulatedSpiBus(String name, int traceCapacity) {
+            this.name = name;
+            this.trace = new byte[traceCapacity];
+        }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public void setMode(int mode) throws IOException {
+            synchronized (SimulatedTransport.this) { checkOpen(); this.mode = mode; }
+        }
+
+        public int getMode() {
+            synchronized (SimulatedTransport.this) { return mode; }
+        }
+
+        @Override
+        public void setFrequency(int frequencyHz) throws IOException {
+            synchronized (SimulatedTransport.this) { checkOpen(); this.frequencyHz = frequencyHz; }
+        }
+
+        public int getFrequency() {
+            synchronized (SimulatedTransport.this) { return frequencyHz; }
+        }
+
+        @Override
+        public void setDelay(int delayUs) throws IOException {
+            synchronized (SimulatedTransport.this) { checkOpen(); this.delayUs = delayUs; }
+        }
+
+        @Override
+        public void setBitsPerWord(int bitsPerWord) throws IOException {
+            synchronized (SimulatedTransport.this) { checkOpen(); this.bitsPerWord = bitsPerWord; }
+        }
+
+        @Override
+        public void setBitJustification(boolean lsbFirst) throws IOException {
+            synchronized (SimulatedTransport.this) { checkOpen(); this.lsbFirst = lsbFirst; }
+        }
+
+        public boolean isLsbFirst() {
+            synchronized (SimulatedTransport.this) { return lsbFirst; }
+        }
+
+        @Override
+        public void setCsChange(boolean csChange) throws IOException {
+            synchronized (SimulatedTransport.this) { checkOpen(); this.csChange = csChange; }
+        }
+
+        @Override
+        public void write(byte [] buffer, int length) throws IOException {
+            synchronized (SimulatedTransport.this) {
+                checkOpen();
+                writes++;
+                spiWrites++;
+                bytesWritten += length;
+                spiBytesWritten += length;
+                if (traceEnabled) {
+                    for (int i = 0; i < length; i++)
+                        trace[(int)(traceCount++ % trace.length)] = buffer[i];
+                }
+            }
+        }
+
+        @Override
+        public void read(byte [] buffer, int length) throws IOException {
+            synchronized (SimulatedTransport.this) {
+                checkOpen();
+                for (int i = 0; i < length; i++) {
+                    if (readData.length == 0) {
+                        buffer[i] = 0;
+                        continue;
+                    }
+                    buffer[i] = readData[readPosition];
+                    // wrapped, not counted: a growing index would overflow on long runs
+                    readPosition = (readPosition + 1) % readData.length;
+                }
+            }
+        }
+
+        /**
+         * Set bytes returned by subsequent reads. Data is repeated when exhausted.
+         */
+        public void setReadData(@NonNull byte [] data) {
+            synchronized (SimulatedTransport.this) {
+                readData = data.clone();
+                readPosition = 0;
+            }
+        }
+
+        /**
+         * @return number of write() calls on this bus
+         */
+        public long getWriteCount() {
+            synchronized (SimulatedTransport.this) { return writes; }
+        }
+
+        /**
+         * @return number of bytes written to this bus
+         */
+        public long getBytesWritten() {
+            synchronized (SimulatedTransport.this) { return bytesWritten; }
+        }
+
+        /**
+         * @return copy of the last written bytes kept in the trace, oldest first
+         */
+        public byte [] getTrace() {
+            synchronized (SimulatedTransport.this) {
+                int length = (int)Math.min(traceCount, trace.length);
+                byte [] result = new byte[length];
+                for (int i = 0; i < length; i++)
+                    result[i] = trace[(int)((traceCount - length + i) % trace.length)];
+                return result;
+            }
+        }
+
+        public boolean isOpen() {
+            synchronized (SimulatedTransport.this) { return open; }
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (SimulatedTransport.this) { open = false; }
+        }
+
+        void resetTrace() {
+            traceCount = 0;
+            writes = bytesWritten = 0;
+        }
+
+        private void checkOpen() throws IOException {
+            if (!open) throw new IOException("SPI device " + name + " is closed");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.dglabs.pio_transport;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Source of pins and SPI buses for the drivers.
+ * {@link PeripheralTransport} talks to the real hardware, {@link SimulatedTransport} records
+ * every pin transition and SPI byte in memory so drivers can run on a plain JVM.
+ */
+public interface Transport {
+    /**
+     * Open digital pin by name
+     * @param name pin name, e.g. "BCM22"
+     * @return opened pin
+     * @throws IOException
+     */
+    Pin openPin(@NonNull String name) throws IOException;
+
+    /**
+     * Open SPI device by name
+     * @param name SPI device name, e.g. "SPI0.0"
+     * @return opened SPI device
+     * @throws IOException
+     */
+    SpiBus openSpiBus(@NonNull String name) throws IOException;
+}
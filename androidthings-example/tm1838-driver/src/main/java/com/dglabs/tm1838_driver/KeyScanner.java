@@ -0,0 +1,317 @@
+package com.dglabs.tm1838_driver;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background keyboard scanner for {@link TM1838Driver}.
+ * A dedicated thread reads the 32 key bits at a fixed rate and debounces every key on its own:
+ * a key changes state only after its raw bit kept the new value for the debounce time.
+ * Press, release and long press events go to the listener on the scanner thread and, once
+ * enabled with {@link #setEventQueueEnabled(boolean)}, to a lock-free event queue read by one
+ * consumer thread with {@link #poll()}.
+ */
+public class KeyScanner implements Closeable {
+    private static final String TAG = KeyScanner.class.getSimpleName();
+
+    public static final int EVENT_PRESS = 0;
+    public static final int EVENT_RELEASE = 1;
+    public static final int EVENT_LONG_PRESS = 2;
+
+    /**
+     * returned by {@link #poll()} when there are no events
+     */
+    public static final int NO_EVENT = -1;
+
+    public static final int KEY_COUNT = 32;
+
+    public static final int DEFAULT_SCAN_RATE = 100;
+    public static final int DEFAULT_DEBOUNCE_MS = 20;
+    public static final int DEFAULT_LONG_PRESS_MS = 800;
+
+    // queue capacity, power of 2
+    private static final int QUEUE_SIZE = 64;
+
+    /**
+     * Receives key events on the scanner thread; it should return quickly, scanning waits for it
+     */
+    public interface OnKeyListener {
+        /**
+         * @param key key bit 0-31 of {@link TM1838Driver#readKeyboard()}
+         * @param event {@link #EVENT_PRESS}, {@link #EVENT_RELEASE} or {@link #EVENT_LONG_PRESS}
+         */
+        void onKeyEvent(int key, int event);
+    }
+
+    private final TM1838Driver driver;
+    private volatile OnKeyListener listener;
+    private volatile int scanRate = DEFAULT_SCAN_RATE;
+    private volatile int debounceMs = DEFAULT_DEBOUNCE_MS;
+    private volatile int longPressMs = DEFAULT_LONG_PRESS_MS;
+    private volatile boolean stopping = false;
+
+    // debounced key state and per key scanner state, owned by scanner thread
+    private volatile long keys = 0;
+    private final int [] changeCount = new int[KEY_COUNT];
+    private final long [] pressedSince = new long[KEY_COUNT];
+    private long longPressReported = 0;
+
+    // single producer single consumer queue of events packed as (event << 8) | key; tail is
+    // written by the scanner thread only, head by the consumer only
+    private final int [] queue = new int[QUEUE_SIZE];
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private volatile boolean queueEnabled = false;
+    // listener threw on its last call, owned by scanner thread
+    private boolean listenerFailing = false;
+    private final AtomicLong listenerErrors = new AtomicLong();
+
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong missedScans = new AtomicLong();
+    private final AtomicLong scanErrors = new AtomicLong();
+    private final AtomicLong scanNanos = new AtomicLong();
+    private volatile long maxScanNanos = 0;
+
+    private final Thread scanThread = new Thread("KeyScanner") {
+        @Override
+        public void run() {
+            boolean failing = false;
+            long deadline = System.nanoTime();
+            while (!stopping) {
+                final long period = TimeUnit.SECONDS.toNanos(1) / scanRate;
+                final long start = System.nanoTime();
+                // scans which could not start in their slot are skipped, not caught up
+                final long late = start - deadline;
+                if (late >= period) {
+                    missedScans.addAndGet(late / period);
+                    deadline += (late / period) * period;
+                }
+                try {
+                    final long raw = driver.readKeyboard();
+                    final long end = System.nanoTime();
+                    recordScan(end - start);
+                    failing = false;
+                    scan(raw, end, Math.max(1, (int)((debounceMs * (long)scanRate + 999) / 1000)));
+                }
+                catch (IOException ex) {
+                    scanErrors.incrementAndGet();
+                    // a failing bus would flood the log, report the first error of a series only
+                    if (!failing) Log.e(TAG, "Error reading keyboard", ex);
+                    failing = true;
+                }
+                deadline += period;
+                for (long now = System.nanoTime(); !stopping && deadline - now > 0; now = System.nanoTime()) {
+                    LockSupport.parkNanos(deadline - now);
+                }
+            }
+        }
+    };
+
+    /**
+     * Start scanning keyboard of the driver. The driver is not owned by the scanner and may be
+     * used for display meanwhile.
+     * @param driver TM1638 driver
+     */
+    public KeyScanner(@NonNull TM1838Driver driver) {
+        this.driver = driver;
+        scanThread.start();
+    }
+
+    public void setOnKeyListener(OnKeyListener listener) { this.listener = listener; }
+
+    /**
+     * Queue events for {@link #poll()}. Off by default: nobody would drain the queue of a
+     * listener-only scanner, so it would stay full and count every event as dropped
+     * @param queueEnabled true to queue events from now on
+     */
+    public void setEventQueueEnabled(boolean queueEnabled) { this.queueEnabled = queueEnabled; }
+
+    public boolean isEventQueueEnabled() { return queueEnabled; }
+
+    /**
+     * @param scanRate scans per second 1-1000
+     */
+    public void setScanRate(int scanRate) {
+        if (scanRate < 1 || scanRate > 1000) throw new IllegalArgumentException("scanRate should be 1-1000");
+        this.scanRate = scanRate;
+    }
+
+    public int getScanRate() { return scanRate; }
+
+    /**
+     * @param debounceMs time raw key state should stay unchanged to be accepted, rounded up to whole scans
+     */
+    public void setDebounceTime(int debounceMs) {
+        if (debounceMs < 0) throw new IllegalArgumentException("debounceMs should not be negative");
+        this.debounceMs = debounceMs;
+    }
+
+    public int getDebounceTime() { return debounceMs; }
+
+    /**
+     * @param longPressMs time a key is held before {@link #EVENT_LONG_PRESS}, 0 to disable long press
+     */
+    public void setLongPressTime(int longPressMs) {
+        if (longPressMs < 0) throw new IllegalArgumentException("longPressMs should not be negative");
+        this.longPressMs = longPressMs;
+    }
+
+    public int getLongPressTime() { return longPressMs; }
+
+    /**
+     * @return debounced bitmap of pressed keys
+     */
+    public long getKeys() { return keys; }
+
+    public boolean isPressed(int key) { return (keys & (1L << key)) != 0; }
+
+    /**
+     * Take the oldest event from the queue, see {@link #setEventQueueEnabled(boolean)}.
+     * Only one thread may poll. Does not allocate
+     * @return event to decode with {@link #getKey(int)} and {@link #getEvent(int)}, {@link #NO_EVENT} if empty
+     */
+    public int poll() {
+        final long h = head.get();
+        if (h == tail.get()) return NO_EVENT;
+        final int event = queue[(int)(h & (QUEUE_SIZE - 1))];
+        head.lazySet(h + 1);
+        return event;
+    }
+
+    /**
+     * @return key bit 0-31 of polled event
+     */
+    public static int getKey(int event) { return event & 0xFF; }
+
+    /**
+     * @return {@link #EVENT_PRESS}, {@link #EVENT_RELEASE} or {@link #EVENT_LONG_PRESS} of polled event
+     */
+    public static int getEvent(int event) { return event >>> 8; }
+
+    /**
+     * @return number of events lost because the queue was full
+     */
+    public long getDroppedEvents() { return droppedEvents.get(); }
+
+    /**
+     * @return number of listener calls which threw an exception
+     */
+    public long getListenerErrors() { return listenerErrors.get(); }
+
+    /**
+     * @return number of keyboard reads
+     */
+    public long getScanCount() { return scans.get(); }
+
+    /**
+     * @return number of scan slots skipped because the scanner was late
+     */
+    public long getMissedScans() { return missedScans.get(); }
+
+    /**
+     * @return number of failed keyboard reads
+     */
+    public long getScanErrors() { return scanErrors.get(); }
+
+    /**
+     * @return average keyboard read time, nanoseconds
+     */
+    public long getAverageScanNanos() {
+        final long count = scans.get();
+        return count == 0 ? 0 : scanNanos.get() / count;
+    }
+
+    /**
+     * @return longest keyboard read time, nanoseconds
+     */
+    public long getMaxScanNanos() { return maxScanNanos; }
+
+    private void recordScan(long nanos) {
+        scans.incrementAndGet();
+        scanNanos.addAndGet(nanos);
+        if (nanos > maxScanNanos) maxScanNanos = nanos;
+    }
+
+    /**
+     * Debounce raw key bits and report changes. Scanner thread only
+     * @param raw key bits just read
+     * @param now scan time, nanoseconds
+     * @param debounceScans number of scans raw bit should differ to change key state
+     */
+    private void scan(long raw, long now, int debounceScans) {
+        long state = keys;
+        final long changed = raw ^ state;
+        for (int key = 0; key < KEY_COUNT; key++) {
+            final long bit = 1L << key;
+            if ((changed & bit) == 0) {
+                changeCount[key] = 0;
+                continue;
+            }
+            if (++changeCount[key] < debounceScans) continue;
+            changeCount[key] = 0;
+            state ^= bit;
+            if ((state & bit) != 0) {
+                pressedSince[key] = now;
+                longPressReported &= ~bit;
+            }
+            keys = state;
+            report(key, (state & bit) != 0 ? EVENT_PRESS : EVENT_RELEASE);
+        }
+        final long longPressNanos = TimeUnit.MILLISECONDS.toNanos(longPressMs);
+        final long held = state & ~longPressReported;
+        if (held != 0 && longPressNanos > 0) {
+            for (int key = 0; key < KEY_COUNT; key++) {
+                final long bit = 1L << key;
+                if ((held & bit) != 0 && now - pressedSince[key] >= longPressNanos) {
+                    longPressReported |= bit;
+                    report(key, EVENT_LONG_PRESS);
+                }
+            }
+        }
+    }
+
+    private void report(int key, int event) {
+        if (queueEnabled) {
+            final long t = tail.get();
+            if (t - head.get() < QUEUE_SIZE) {
+                queue[(int)(t & (QUEUE_SIZE - 1))] = (event << 8) | key;
+                tail.lazySet(t + 1);
+            }
+            else droppedEvents.incrementAndGet();
+        }
+        final OnKeyListener l = listener;
+        if (l == null) return;
+        try {
+            l.onKeyEvent(key, event);
+            listenerFailing = false;
+        }
+        catch (RuntimeException ex) {
+            // scanning goes on, a throwing listener would otherwise end the scanner thread
+            listenerErrors.incrementAndGet();
+            if (!listenerFailing) Log.e(TAG, "Error in key listener", ex);
+            listenerFailing = true;
+        }
+    }
+
+    /**
+     * Stop scanning. The driver stays open
+     */
+    @Override
+    public void close() {
+        stopping = true;
+        LockSupport.unpark(scanThread);
+        try {
+            scanThread.join();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,9 +3,10 @@ package com.dglabs.tm1838_driver;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
-import com.google.android.things.pio.Gpio;
-import com.google.android.things.pio.PeripheralManagerService;
-import com.google.android.things.pio.SpiDevice;
+import com.dglabs.pio_transport.PeripheralTransport;
+import com.dglabs.pio_transport.Pin;
+import com.dglabs.pio_transport.SpiBus;
+import com.dglabs.pio_transport.Transport;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -17,7 +18,9 @@ import java.io.IOException;
 /*
     TM1638 (https://retrocip.cz/files/tm1638.pdf) driver for IC which drives up to 8 7-segment
     indicators with autorefresh and scans attached keyboard.
-    Driver may work through GPIO pins (3 pins) or by SPI device
+    Driver may work through GPIO pins (3 pins) or by SPI device.
+    Public methods are synchronized: keyboard may be scanned by KeyScanner while other
+    threads update the display.
  */
 public class TM1838Driver implements Closeable {
     public static final String TAG = TM1838Driver.class.getSimpleName();
@@ -137,10 +140,53 @@ public class TM1838Driver implements Closeable {
     public static final int BRIGHTNESS_HIGH = 0x07;
     public static final int BRIGHTNESS_MED = 0x04;
     public static final int BRIGHTNESS_LOW = 0x00;
-    private static final int MAX_BUFFER_LENGTH = 32;
 
-    private Gpio CLK, STB, DIO;
-    private SpiDevice spiDevice;
+    /**
+     * numbers and text start at position 0
+     */
+    public static final int ALIGN_LEFT = 0;
+    /**
+     * numbers and text end at position 7
+     */
+    public static final int ALIGN_RIGHT = 1;
+
+    // number of digits; display registers hold segments of digit i at address 2i, LED i at 2i+1
+    private static final int DIGIT_COUNT = 8;
+    private static final int REGISTER_COUNT = DIGIT_COUNT * 2;
+
+    private static final int SEGMENT_MINUS = 0x40;
+    private static final int SEGMENT_PERIOD = 0x80;
+
+    private static final long [] POWERS_OF_10 = { 1, 10, 100, 1000, 10000, 100000, 1000000, 10000000 };
+
+    // bit order of every byte reversed: TM1638 shifts LSB first, many SPI controllers MSB first only
+    private static final byte [] reverse = new byte[256];
+    static {
+        for (int i = 0; i < reverse.length; i++) reverse[i] = (byte)(Integer.reverse(i) >>> 24);
+    }
+
+    private Pin CLK, STB, DIO;
+    private SpiBus spiDevice;
+    // SPI controller shifts LSB first by itself, bytes are not reversed
+    private boolean lsbFirst = false;
+
+    // transfer buffers reused by every call, no garbage per frame
+    private final byte [] commandBuffer = new byte[1];
+    private final byte [] frameBuffer = new byte[REGISTER_COUNT + 1];
+    private final byte [] keyBuffer = new byte[4];
+    // segments of rendered number or text, right aligned: it occupies the last digitCount entries
+    private final int [] digits = new int[DIGIT_COUNT];
+    private int alignment = ALIGN_RIGHT;
+
+    // display registers to show, sent as a diff against shadow
+    private final byte [] registers = new byte[REGISTER_COUNT];
+    // display registers as last written to the chip, unknown until the first full write
+    private final byte [] shadow = new byte[REGISTER_COUNT];
+    private boolean shadowValid = false;
+    // last display control command sent, -1 if unknown
+    private int displayControl = -1;
+    private long bytesSent = 0;
+    private long bytesSaved = 0;
 
     /**
      * Setup and initialize object using SPI device (MOSI pulled up to MISO by 1K resistor)
@@ -149,13 +195,37 @@ public class TM1838Driver implements Closeable {
      * @throws IOException
      */
     public TM1838Driver(@NonNull String spiDeviceName, int brightness) throws IOException {
-        PeripheralManagerService service = new PeripheralManagerService();
-        spiDevice = service.openSpiDevice(spiDeviceName);
-        spiDevice.setMode(SpiDevice.MODE3);
+        this(new PeripheralTransport(), spiDeviceName, brightness);
+    }
+
+    /**
+     * Setup and initialize object using SPI device of given transport
+     * @param transport bus source, e.g. {@link PeripheralTransport} or simulated one
+     * @param spiDeviceName
+     * @param brightness desired display brightness 0-7
+     * @throws IOException
+     */
+    public TM1838Driver(@NonNull Transport transport, @NonNull String spiDeviceName, int brightness) throws IOException {
+        spiDevice = transport.openSpiBus(spiDeviceName);
+        spiDevice.setMode(SpiBus.MODE3);
         spiDevice.setFrequency(16000000);     // 16MHz
         spiDevice.setDelay(80);
         spiDevice.setBitsPerWord(8);          // 8 BPW
-        spiDevice.setBitJustification(false); // MSB first
+        try {
+            spiDevice.setBitJustification(true); // LSB first
+            lsbFirst = true;
+        }
+        catch (IOException ex) {
+            // an unsupported bit order can not be told from a bus error, both are IOException
+            Log.d(TAG, "LSB first refused by " + spiDeviceName + ", reversing bytes", ex);
+            try {
+                spiDevice.setBitJustification(false); // MSB first, bytes reversed by table
+            }
+            catch (IOException fallbackEx) {
+                fallbackEx.addSuppressed(ex);
+                throw fallbackEx;
+            }
+        }
         spiDevice.setCsChange(false);
         init(brightness);
     }
@@ -169,10 +239,22 @@ public class TM1838Driver implements Closeable {
      * @throws IOException
      */
     public TM1838Driver(@NonNull String CLK_pin, @NonNull String STB_pin, @NonNull String DIO_pin, int brightness) throws IOException {
-        PeripheralManagerService service = new PeripheralManagerService();
-        CLK = service.openGpio(CLK_pin); CLK.setDirection(Gpio.DIRECTION_OUT_INITIALLY_HIGH);
-        STB = service.openGpio(STB_pin); STB.setDirection(Gpio.DIRECTION_OUT_INITIALLY_HIGH);
-        DIO = service.openGpio(DIO_pin); DIO.setDirection(Gpio.DIRECTION_OUT_INITIALLY_LOW);
+        this(new PeripheralTransport(), CLK_pin, STB_pin, DIO_pin, brightness);
+    }
+
+    /**
+     * Setup and initialize object using GPIO pins of given transport
+     * @param transport pin source, e.g. {@link PeripheralTransport} or simulated one
+     * @param CLK_pin CLK pin name
+     * @param STB_pin STB pin name
+     * @param DIO_pin DIO pin name
+     * @param brightness desired display brightness 0-7
+     * @throws IOException
+     */
+    public TM1838Driver(@NonNull Transport transport, @NonNull String CLK_pin, @NonNull String STB_pin, @NonNull String DIO_pin, int brightness) throws IOException {
+        CLK = transport.openPin(CLK_pin); CLK.setDirection(Pin.DIRECTION_OUT_INITIALLY_HIGH);
+        STB = transport.openPin(STB_pin); STB.setDirection(Pin.DIRECTION_OUT_INITIALLY_HIGH);
+        DIO = transport.openPin(DIO_pin); DIO.setDirection(Pin.DIRECTION_OUT_INITIALLY_LOW);
         init(brightness);
     }
 
@@ -192,7 +274,7 @@ public class TM1838Driver implements Closeable {
     }
 
     @Override
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
         if (spiDevice != null) {
             try {
                 spiDevice.close();
@@ -216,55 +298,43 @@ public class TM1838Driver implements Closeable {
         }
     }
 
-    private byte [] LSBtoMSB(byte [] buf, int length) {
-        for (int i = 0; i < length; i++) {
-            byte b = 0;
-            byte x = buf[i];
-            for (int bi = 0; bi < 8; bi++) {
-                b<<=1;
-                b|=( x &1);
-                x>>=1;
-            }
-            buf[i] = b;
-        }
-        return buf;
-    }
-
     private void writeByte(int data) throws IOException {
-        if (spiDevice != null) {
-            final byte [] buffer = new byte[1];
-            buffer[0] = (byte)data;
-            spiDevice.write(LSBtoMSB(buffer, 1), 1);
-        }
-        else {
-            for (int i = 0; i < 8; i++) {
-                CLK.setValue(LOW);
-                DIO.setValue(((data >> i) & 0x01) != 0);
-                CLK.setValue(HIGH);
-            }
-        }
+        commandBuffer[0] = (byte)data;
+        writeBytes(commandBuffer, 1);
     }
 
+    /**
+     * Send bytes LSB first. In SPI mode bytes may be reversed in place
+     */
     private void writeBytes(byte [] data, int length) throws IOException {
+        bytesSent += length;
         if (spiDevice != null) {
-            spiDevice.write(LSBtoMSB(data, length), length);
+            if (!lsbFirst) {
+                for (int i = 0; i < length; i++) data[i] = reverse[data[i] & 0xFF];
+            }
+            spiDevice.write(data, length);
         }
         else {
-            for (int i = 0; i < length; i++)
-                writeByte((int)data[i]);
+            for (int i = 0; i < length; i++) {
+                for (int bit = 0; bit < 8; bit++) {
+                    CLK.setValue(LOW);
+                    DIO.setValue(((data[i] >> bit) & 0x01) != 0);
+                    CLK.setValue(HIGH);
+                }
+            }
         }
     }
 
     private int readByte() throws IOException {
         int result = 0;
-        DIO.setDirection(Gpio.DIRECTION_IN);
+        DIO.setDirection(Pin.DIRECTION_IN);
         DIO.setValue(HIGH);
         for (int i = 0; i < 8; i++) {
             CLK.setValue(LOW);
             result |= (DIO.getValue() ? 1 : 0) << i;
             CLK.setValue(HIGH);
         }
-        DIO.setDirection(Gpio.DIRECTION_OUT_INITIALLY_LOW);
+        DIO.setDirection(Pin.DIRECTION_OUT_INITIALLY_LOW);
         return result;
     }
 
@@ -275,12 +345,107 @@ public class TM1838Driver implements Closeable {
     }
 
     /**
-     * Set display brightness. -1 turns display off
+     * Set display brightness. -1 turns display off. Nothing is sent if it is already set
      * @param brightness 0-7 the brightness level. -1 turns display off
      */
-    public void setBrightness(int brightness) throws  IOException {
-        if (brightness < 0) sendCommand(CMD_DISPLAY_OFF);
-        else sendCommand(CMD_SET_BRIGHTNESS | (brightness & 0x07));
+    public synchronized void setBrightness(int brightness) throws  IOException {
+        final int command = brightness < 0 ? CMD_DISPLAY_OFF : CMD_SET_BRIGHTNESS | (brightness & 0x07);
+        if (command == displayControl) {
+            bytesSaved++;
+            return;
+        }
+        displayControl = -1;
+        sendCommand(command);
+        displayControl = command;
+    }
+
+    /**
+     * Send display registers which differ from the chip ones. Changed registers are written one
+     * by one in fixed address mode, or as one auto increment burst from the first to the last
+     * changed one, whichever takes fewer bus bytes
+     * @throws IOException
+     */
+    private void update() throws IOException {
+        int first = -1, last = -1, changed = 0;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (!shadowValid || registers[i] != shadow[i]) {
+                if (first < 0) first = i;
+                last = i;
+                changed++;
+            }
+        }
+        // baseline is the full burst: command, address and all registers
+        final int full = REGISTER_COUNT + 2;
+        final int burst = last - first + 3;
+        final int single = 1 + changed * 2;
+        if (changed == 0) {
+            bytesSaved += full;
+            return;
+        }
+        // chip state is unknown if the write fails halfway
+        shadowValid = false;
+        if (single < burst) {
+            sendCommand(CMD_WRITE_TO_ADDR);
+            for (int i = first; i <= last; i++) {
+                if (registers[i] == shadow[i]) continue;
+                if (STB != null) STB.setValue(LOW);
+                // address and data in one transfer: chip select must not rise between them
+                frameBuffer[0] = (byte)(CMD_ADDR_0 | i);
+                frameBuffer[1] = registers[i];
+                writeBytes(frameBuffer, 2);
+                if (STB != null) STB.setValue(HIGH);
+            }
+        }
+        else {
+            sendCommand(CMD_WRITE_BYTES);
+            if (STB != null) STB.setValue(LOW);
+            frameBuffer[0] = (byte)(CMD_ADDR_0 | first);
+            System.arraycopy(registers, first, frameBuffer, 1, last - first + 1);
+            writeBytes(frameBuffer, last - first + 2);
+            if (STB != null) STB.setValue(HIGH);
+        }
+        System.arraycopy(registers, 0, shadow, 0, REGISTER_COUNT);
+        shadowValid = true;
+        bytesSaved += full - Math.min(single, burst);
+    }
+
+    /**
+     * Forget the known chip state: next update rewrites all display registers and brightness
+     * is sent again, e.g. after the chip lost power
+     */
+    public synchronized void invalidate() {
+        shadowValid = false;
+        displayControl = -1;
+    }
+
+    /**
+     * @return number of bytes sent to the chip
+     */
+    public synchronized long getBytesSent() { return bytesSent; }
+
+    /**
+     * @return number of bus bytes saved by skipping unchanged registers and brightness, compared
+     * to writing all display registers on every update
+     */
+    public synchronized long getBytesSaved() { return bytesSaved; }
+
+    /**
+     * Turn LEDs on or off, LEDs are independent of digits
+     * @param mask bit i lights LED i
+     * @throws IOException
+     */
+    public synchronized void setLeds(int mask) throws IOException {
+        for (int i = 0; i < DIGIT_COUNT; i++) registers[(i * 2) + 1] = (byte)((mask >> i) & 0x01);
+        update();
+    }
+
+    /**
+     * @return bitmap of lit LEDs, bit i for LED i
+     */
+    public synchronized int getLeds() {
+        int mask = 0;
+        for (int i = 0; i < DIGIT_COUNT; i++) mask |= (registers[(i * 2) + 1] & 0x01) << i;
+        return mask;
     }
 
     /**
@@ -288,13 +453,15 @@ public class TM1838Driver implements Closeable {
      * @return  long bitmap of 32 key states
      * @throws IOException
      */
-    public long readKeyboard() throws IOException {
+    public synchronized long readKeyboard() throws IOException {
         long result = 0;
         sendCommand(CMD_READ_KEYBOARD);
         if (spiDevice != null) {
-            final byte [] buffer = new byte[4];
-            spiDevice.read(buffer, 4);
-            result = (buffer[3] << 24) | (buffer[2] << 16) | (buffer[1] << 8) | buffer[0];
+            spiDevice.read(keyBuffer, keyBuffer.length);
+            for (int i = 0; i < keyBuffer.length; i++) {
+                final int b = lsbFirst ? keyBuffer[i] & 0xFF : reverse[keyBuffer[i] & 0xFF] & 0xFF;
+                result |= ((long) b) << i * 8;
+            }
         }
         else {
             STB.setValue(LOW);
@@ -313,39 +480,27 @@ public class TM1838Driver implements Closeable {
      * @param period true if period should be displayed
      * @throws IOException
      */
-    public void display(char c, int address, boolean period) throws IOException {
-        sendCommand(CMD_WRITE_TO_ADDR);
-        if (STB != null) STB.setValue(LOW);
-        writeByte(CMD_ADDR_0 | address & 0x7);
-        writeByte(FONT_DEFAULT[(int)c & 0xFF] | (period ? 0x80 : 0x00));
-        if (STB != null) STB.setValue(HIGH);
+    public synchronized void display(char c, int address, boolean period) throws IOException {
+        registers[(address & 0x7) * 2] = (byte)(glyph(c) | (period ? 0x80 : 0x00));
+        update();
     }
 
-    private void prepareBufferSwap(byte [] buffer, int start, int length) {
-        for (int i = start; i < length; i+=2) {
-            byte b = buffer[i];
-            buffer[i] = buffer[i + 1];
-            buffer[i + 1] = b;
-        }
+    private static int glyph(char c) {
+        return c < FONT_DEFAULT.length ? FONT_DEFAULT[c] : 0;
     }
 
     /**
      * Fill display with up to 8 bytes of data. Show period into given position
      * @param data  up to 8 bytes to send to display starting from 0 position
-     * @param periodMask display periods in bitmap position(s). 0 to hide period
+     * @param periodMask display periods in bitmap position(s), bit i for position i. 0 to hide period
      * @throws IOException
      */
-    public void display(int [] data, int periodMask) throws IOException {
-        sendCommand(CMD_WRITE_BYTES);
-        if (STB != null) STB.setValue(LOW);
-        int length = data.length > MAX_BUFFER_LENGTH - 1 ? MAX_BUFFER_LENGTH - 1 : data.length;
-        final byte [] buffer = new byte [MAX_BUFFER_LENGTH + 2];
-        buffer[0] = (byte)CMD_ADDR_0;
-        for (int i = 0; i < length; i++)
-            buffer[(i * 2) +1] = (byte)(data[i] | ((periodMask & i) != 0 ? 0x80 : 0x00));
-        //prepareBufferSwap(buffer, 2, length + 1);
-        writeBytes(buffer, (length * 2) + 1);
-        if (STB != null) STB.setValue(HIGH);
+    public synchronized void display(int [] data, int periodMask) throws IOException {
+        final int length = Math.min(data.length, DIGIT_COUNT);
+        for (int i = 0; i < length; i++) {
+            registers[i * 2] = (byte)(data[i] | ((periodMask & (1 << i)) != 0 ? 0x80 : 0x00));
+        }
+        update();
     }
 
     /**
@@ -354,24 +509,168 @@ public class TM1838Driver implements Closeable {
      * @param periodPosition position of the period to display 0-7. -1 to hide a period
      * @throws IOException
      */
-    public void display(String chars, int periodPosition) throws IOException {
-        sendCommand(CMD_WRITE_BYTES);
-        if (STB != null) STB.setValue(LOW);
+    public synchronized void display(String chars, int periodPosition) throws IOException {
+        final int length = Math.min(chars.length(), DIGIT_COUNT);
+        for (int i = 0; i < length; i++) {
+            registers[i * 2] = (byte)(glyph(chars.charAt(i)) | (periodPosition == i ? 0x80 : 0x00));
+        }
+        update();
+    }
+
+    /**
+     * @param alignment {@link #ALIGN_LEFT} or {@link #ALIGN_RIGHT}, used by number, time and
+     * CharSequence display methods
+     */
+    public synchronized void setAlignment(int alignment) {
+        if (alignment != ALIGN_LEFT && alignment != ALIGN_RIGHT) throw new IllegalArgumentException("invalid alignment " + alignment);
+        this.alignment = alignment;
+    }
 
-        Log.d(TAG, "Display: " + chars);
+    public synchronized int getAlignment() { return alignment; }
 
-        int length = chars.length() > MAX_BUFFER_LENGTH - 1 ? MAX_BUFFER_LENGTH - 1 : chars.length();
-        final byte [] buffer = new byte [MAX_BUFFER_LENGTH + 1];
-        buffer[0] = (byte)CMD_ADDR_0;
-        for (int i = 0; i < length; i++)
-            buffer[(i * 2) +1] = (byte)(FONT_DEFAULT[(int) chars.charAt(i) & 0xFF] | (periodPosition == i ? 0x80 : 0x00));
-        //prepareBufferSwap(buffer, 2, length + 1);
-        writeBytes(buffer, (length * 2) + 1);
-        if (STB != null) STB.setValue(HIGH);
+    /**
+     * Display integer number. Numbers not fitting 8 digits are shown as dashes. Does not allocate
+     * @param value number to display
+     * @throws IOException
+     */
+    public synchronized void display(int value) throws IOException {
+        display((long) value);
     }
 
-    private static final int EMPTY[] = { 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0};
-    public void clear() throws IOException {
-        display(EMPTY, 0);
+    /**
+     * Display integer number. Numbers not fitting 8 digits are shown as dashes. Does not allocate
+     * @param value number to display
+     * @throws IOException
+     */
+    public synchronized void display(long value) throws IOException {
+        writeDigits(renderNumber(value, 0));
+    }
+
+    /**
+     * Display fixed point number rounded to given number of decimals, e.g. 3.14 or -0.50.
+     * Numbers not fitting 8 digits, NaN and infinities are shown as dashes. Does not allocate
+     * @param value number to display
+     * @param decimals digits after the period 0-7
+     * @throws IOException
+     */
+    public synchronized void display(double value, int decimals) throws IOException {
+        if (decimals < 0 || decimals >= DIGIT_COUNT) throw new IllegalArgumentException("decimals should be 0-7");
+        final double scaled = value * POWERS_OF_10[decimals];
+        if (Double.isNaN(scaled) || Math.abs(scaled) >= POWERS_OF_10[DIGIT_COUNT - 1] * 10) writeDigits(renderOverflow());
+        else writeDigits(renderNumber(Math.round(scaled), decimals));
+    }
+
+    /**
+     * Display time as mm.ss, minutes padded with zero. Does not allocate
+     * @param minutes 0-99
+     * @param seconds 0-59
+     * @throws IOException
+     */
+    public synchronized void displayTime(int minutes, int seconds) throws IOException {
+        if (minutes < 0 || minutes > 99) throw new IllegalArgumentException("minutes should be 0-99");
+        if (seconds < 0 || seconds > 59) throw new IllegalArgumentException("seconds should be 0-59");
+        writeDigits(renderNumber(minutes * 100 + seconds, 2, 4));
+    }
+
+    /**
+     * Display time as h.mm.ss or hh.mm.ss. Does not allocate
+     * @param hours 0-99
+     * @param minutes 0-59
+     * @param seconds 0-59
+     * @throws IOException
+     */
+    public synchronized void displayTime(int hours, int minutes, int seconds) throws IOException {
+        if (hours < 0 || hours > 99) throw new IllegalArgumentException("hours should be 0-99");
+        if (minutes < 0 || minutes > 59) throw new IllegalArgumentException("minutes should be 0-59");
+        if (seconds < 0 || seconds > 59) throw new IllegalArgumentException("seconds should be 0-59");
+        final int count = renderNumber(hours * 10000 + minutes * 100 + seconds, 4);
+        digits[DIGIT_COUNT - 3] |= SEGMENT_PERIOD;
+        writeDigits(count);
+    }
+
+    /**
+     * Display up to 8 characters. A '.' lights the period of the previous character instead of
+     * taking a position of its own, so "12.5" takes 3 positions. Extra characters are dropped.
+     * Does not allocate
+     * @param text characters to display
+     * @throws IOException
+     */
+    public synchronized void display(@NonNull CharSequence text) throws IOException {
+        int count = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c == '.' && count > 0 && (digits[count - 1] & SEGMENT_PERIOD) == 0) {
+                digits[count - 1] |= SEGMENT_PERIOD;
+            }
+            else if (count < DIGIT_COUNT) {
+                digits[count++] = glyph(c);
+            }
+            else if (c != '.') break;
+        }
+        // move to the right end like numbers
+        System.arraycopy(digits, 0, digits, DIGIT_COUNT - count, count);
+        writeDigits(count);
+    }
+
+    /**
+     * Render number into the end of digits
+     * @param value number to render
+     * @param decimals digits after the period, zeros are added in front to show them all
+     * @return number of rendered digits
+     */
+    private int renderNumber(long value, int decimals) {
+        return renderNumber(value, decimals, decimals + 1);
+    }
+
+    /**
+     * Render number into the end of digits
+     * @param value number to render
+     * @param decimals digits after the period
+     * @param minDigits zeros are added in front up to this number of digits, at least decimals + 1
+     * @return number of rendered digits
+     */
+    private int renderNumber(long value, int decimals, int minDigits) {
+        // work on negative value: -Long.MIN_VALUE does not exist
+        long v = value < 0 ? value : -value;
+        int position = DIGIT_COUNT;
+        do {
+            if (position == 0) return renderOverflow();
+            digits[--position] = FONT_DEFAULT['0' - (int)(v % 10)];
+            v /= 10;
+        }
+        while (v != 0 || DIGIT_COUNT - position < minDigits);
+        if (decimals > 0) digits[DIGIT_COUNT - 1 - decimals] |= SEGMENT_PERIOD;
+        if (value < 0) {
+            if (position == 0) return renderOverflow();
+            digits[--position] = SEGMENT_MINUS;
+        }
+        return DIGIT_COUNT - position;
+    }
+
+    private int renderOverflow() {
+        for (int i = 0; i < DIGIT_COUNT; i++) digits[i] = SEGMENT_MINUS;
+        return DIGIT_COUNT;
+    }
+
+    /**
+     * Show the last count digits with current alignment, blank other positions
+     */
+    private void writeDigits(int count) throws IOException {
+        final int first = alignment == ALIGN_LEFT ? 0 : DIGIT_COUNT - count;
+        for (int i = 0; i < DIGIT_COUNT; i++) {
+            final int d = i - first;
+            registers[i * 2] = (byte)(d >= 0 && d < count ? digits[DIGIT_COUNT - count + d] : 0);
+        }
+        update();
+    }
+
+    /**
+     * Turn off all digits and LEDs
+     * @throws IOException
+     */
+    public synchronized void clear() throws IOException {
+        for (int i = 0; i < REGISTER_COUNT; i++) registers[i] = 0;
+        update();
     }
 }
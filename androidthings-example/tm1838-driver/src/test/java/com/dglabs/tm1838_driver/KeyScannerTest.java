@@ -0,0 +1,81 @@
+package com.dglabs.tm1838_driver;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class KeyScannerTest {
+
+    private SimulatedTransport transport;
+    private TM1838Driver driver;
+    private KeyScanner scanner;
+
+    @Before
+    public void setUp() throws Exception {
+        transport = new SimulatedTransport(16);
+        driver = new TM1838Driver(transport, "SPI0.0", TM1838Driver.BRIGHTNESS_LOW);
+        setKeys(0);
+        scanner = new KeyScanner(driver);
+        scanner.setScanRate(1000);
+        scanner.setDebounceTime(0);
+        scanner.setLongPressTime(0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scanner.close();
+        driver.close();
+    }
+
+    private void setKeys(long keys) {
+        transport.getSpiBus("SPI0.0").setReadData(new byte[] { (byte)keys, (byte)(keys >> 8), (byte)(keys >> 16), (byte)(keys >> 24) });
+    }
+
+    private void awaitKeys(long keys) throws InterruptedException {
+        for (int i = 0; i < 2000 && scanner.getKeys() != keys; i++) Thread.sleep(1);
+        assertEquals(keys, scanner.getKeys());
+    }
+
+    @Test
+    public void queue_isOptIn() throws Exception {
+        for (int i = 0; i < 40; i++) {
+            setKeys(1L << 5);
+            awaitKeys(1L << 5);
+            setKeys(0);
+            awaitKeys(0);
+        }
+        assertEquals(KeyScanner.NO_EVENT, scanner.poll());
+        assertEquals(0, scanner.getDroppedEvents());
+
+        scanner.setEventQueueEnabled(true);
+        setKeys(1L << 17);
+        awaitKeys(1L << 17);
+        final int event = scanner.poll();
+        assertEquals(17, KeyScanner.getKey(event));
+        assertEquals(KeyScanner.EVENT_PRESS, KeyScanner.getEvent(event));
+    }
+
+    @Test
+    public void throwingListener_doesNotStopScanning() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        scanner.setOnKeyListener(new KeyScanner.OnKeyListener() {
+            @Override
+            public void onKeyEvent(int key, int event) {
+                calls.incrementAndGet();
+                throw new IllegalStateException("listener failure");
+            }
+        });
+        setKeys(1L << 2);
+        awaitKeys(1L << 2);
+        setKeys(0);
+        awaitKeys(0);
+        assertEquals(2, calls.get());
+        assertEquals(2, scanner.getListenerErrors());
+    }
+}
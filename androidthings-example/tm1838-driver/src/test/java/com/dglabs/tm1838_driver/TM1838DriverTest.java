@@ -0,0 +1,305 @@
+package com.dglabs.tm1838_driver;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TM1838DriverTest {
+
+    private SimulatedTransport transport;
+    private TM1838Driver driver;
+    private final int [] registers = new int[16];
+    // DIO level at the start of the pin trace
+    private boolean dio = false;
+    // chip address mode set by the last data command
+    private boolean fixed = false;
+
+    @Before
+    public void setUp() throws Exception {
+        transport = new SimulatedTransport(1 << 20);
+        driver = new TM1838Driver(transport, "CLK", "STB", "DIO", TM1838Driver.BRIGHTNESS_LOW);
+        apply(frames());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        driver.close();
+    }
+
+    /**
+     * Decode pin trace since the last call into STB frames: bytes sampled LSB first on CLK rising edges
+     */
+    private List<int []> frames() {
+        final List<int []> result = new ArrayList<>();
+        boolean clk = true, stb = true;
+        int [] frame = null;
+        int bits = 0;
+        for (int i = 0; i < transport.getPinTraceLength(); i++) {
+            final String pin = transport.getPinTracePin(i).getName();
+            final boolean value = transport.getPinTraceValue(i);
+            if (pin.equals("DIO")) dio = value;
+            else if (pin.equals("STB")) {
+                if (!value) frame = new int[0];
+                else if (frame != null && frame.length > 0) {
+                    assertEquals("whole bytes per frame", 0, bits % 8);
+                    result.add(frame);
+                    frame = null;
+                }
+                bits = 0;
+                stb = value;
+            }
+            else if (pin.equals("CLK")) {
+                if (value && !clk && !stb) {
+                    if (bits % 8 == 0) {
+                        final int [] longer = new int[frame.length + 1];
+                        System.arraycopy(frame, 0, longer, 0, frame.length);
+                        frame = longer;
+                    }
+                    if (dio) frame[frame.length - 1] |= 1 << (bits % 8);
+                    bits++;
+                }
+                clk = value;
+            }
+        }
+        transport.reset();
+        return result;
+    }
+
+    /**
+     * TM1638 model: data command selects fixed or auto increment address, address command writes data
+     */
+    private void apply(List<int []> frames) {
+        for (int [] frame : frames) {
+            final int command = frame[0];
+            if ((command & 0xC0) == 0x40) fixed = (command & 0x04) != 0;
+            else if ((command & 0xC0) == 0xC0) {
+                int address = command & 0x0F;
+                if (fixed) assertEquals("fixed address frame", 2, frame.length);
+                for (int i = 1; i < frame.length; i++) {
+                    registers[address & 0x0F] = frame[i];
+                    if (!fixed) address++;
+                }
+            }
+        }
+    }
+
+    private static int digit(char c) { return TM1838Driver.FONT_DEFAULT[c]; }
+
+    /**
+     * Assert digit registers show text padded to 8 positions, '.' lights the period of the previous character
+     */
+    private void assertShown(String text) {
+        apply(frames());
+        final int [] expected = new int[8];
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '.') expected[count - 1] |= 0x80;
+            else expected[count++] = text.charAt(i) == ' ' ? 0 : digit(text.charAt(i));
+        }
+        assertEquals("positions in " + text, 8, count);
+        final int [] shown = new int[8];
+        for (int i = 0; i < 8; i++) shown[i] = registers[i * 2];
+        assertArrayEquals(text, expected, shown);
+    }
+
+    @Test
+    public void display_writesDigitRegisters() throws Exception {
+        driver.setLeds(0x81);
+        driver.display("12345678", 2);
+        apply(frames());
+        for (int i = 0; i < 8; i++) assertEquals(digit((char)('1' + i)) | (i == 2 ? 0x80 : 0), registers[i * 2]);
+        assertEquals(1, registers[1]);
+        assertEquals(0, registers[3]);
+        assertEquals(1, registers[15]);
+        assertEquals(0x81, driver.getLeds());
+    }
+
+    @Test
+    public void update_sendsBurstOfChangedSpan() throws Exception {
+        driver.display("1234", -1);
+        final List<int []> frames = frames();
+        assertEquals(2, frames.size());
+        assertArrayEquals(new int[] { 0x40 }, frames.get(0));
+        // digits 0-3 are registers 0, 2, 4 and 6: LED registers between them are sent unchanged
+        assertArrayEquals(new int[] { 0xC0, digit('1'), 0, digit('2'), 0, digit('3'), 0, digit('4') }, frames.get(1));
+    }
+
+    @Test
+    public void update_sendsDistantChangesOneByOne() throws Exception {
+        driver.display('1', 0, false);
+        apply(frames());
+        final long saved = driver.getBytesSaved();
+        driver.display(new int[] { 0x3F, 0, 0, 0, 0, 0, 0, 0x06 }, 0);
+        final List<int []> frames = frames();
+        assertEquals(3, frames.size());
+        assertArrayEquals(new int[] { 0x44 }, frames.get(0));
+        assertArrayEquals(new int[] { 0xC0, 0x3F }, frames.get(1));
+        assertArrayEquals(new int[] { 0xCE, 0x06 }, frames.get(2));
+        // 5 bytes instead of the 18 of a full write
+        assertEquals(saved + 13, driver.getBytesSaved());
+        apply(frames);
+        assertEquals(0x3F, registers[0]);
+        assertEquals(0x06, registers[14]);
+    }
+
+    @Test
+    public void update_skipsUnchangedRegisters() throws Exception {
+        driver.display("8", -1);
+        frames();
+        final long sent = driver.getBytesSent();
+        driver.display("8", -1);
+        driver.setBrightness(TM1838Driver.BRIGHTNESS_LOW);
+        assertEquals(0, transport.getPinTraceLength());
+        assertEquals(sent, driver.getBytesSent());
+    }
+
+    @Test
+    public void invalidate_rewritesAllRegisters() throws Exception {
+        driver.display("8", -1);
+        frames();
+        driver.invalidate();
+        driver.setBrightness(TM1838Driver.BRIGHTNESS_LOW);
+        driver.display("8", -1);
+        final List<int []> frames = frames();
+        assertArrayEquals(new int[] { 0x88 }, frames.get(0));
+        assertArrayEquals(new int[] { 0x40 }, frames.get(1));
+        assertEquals(17, frames.get(2).length);
+    }
+
+    @Test
+    public void clear_turnsOffDigitsAndLeds() throws Exception {
+        driver.display("88888888", -1);
+        driver.setLeds(0xFF);
+        driver.clear();
+        apply(frames());
+        assertArrayEquals(new int[16], registers);
+    }
+
+    @Test
+    public void spi_initClearsAllRegisters() throws Exception {
+        final SimulatedTransport spiTransport = new SimulatedTransport(64);
+        final TM1838Driver spi = new TM1838Driver(spiTransport, "SPI0.0", TM1838Driver.BRIGHTNESS_HIGH);
+        try {
+            final SimulatedTransport.SimulatedSpiBus bus = spiTransport.getSpiBus("SPI0.0");
+            assertTrue(bus.isLsbFirst());
+            final byte [] expected = new byte[20];
+            expected[0] = 0x40;
+            expected[1] = (byte)(0x88 | TM1838Driver.BRIGHTNESS_HIGH);
+            expected[2] = 0x40;
+            expected[3] = (byte)0xC0;
+            assertArrayEquals(expected, bus.getTrace());
+            spiTransport.reset();
+            spi.display('1', 7, true);
+            assertArrayEquals(new byte[] { 0x40, (byte)0xCE, (byte)(digit('1') | 0x80) }, bus.getTrace());
+        }
+        finally {
+            spi.close();
+        }
+    }
+
+    @Test
+    public void displayTime_padsMinutes() throws Exception {
+        driver.setAlignment(TM1838Driver.ALIGN_LEFT);
+        driver.displayTime(5, 7);
+        apply(frames());
+        assertEquals(digit('0'), registers[0]);
+        assertEquals(digit('5') | 0x80, registers[2]);
+        assertEquals(digit('0'), registers[4]);
+        assertEquals(digit('7'), registers[6]);
+        assertEquals(0, registers[8]);
+    }
+
+    @Test
+    public void displayInt_isRightAligned() throws Exception {
+        driver.display(42);
+        assertShown("      42");
+        driver.display(-7);
+        assertShown("      -7");
+        driver.display(0);
+        assertShown("       0");
+    }
+
+    @Test
+    public void displayLong_showsDashesWhenNotFitting() throws Exception {
+        driver.display(99999999L);
+        assertShown("99999999");
+        driver.display(-1234567L);
+        assertShown("-1234567");
+        driver.display(100000000L);
+        assertShown("--------");
+        driver.display(-12345678L);
+        assertShown("--------");
+        driver.display(Long.MIN_VALUE);
+        assertShown("--------");
+    }
+
+    @Test
+    public void displayDouble_roundsToDecimals() throws Exception {
+        driver.display(3.14159, 2);
+        assertShown("     3.14");
+        driver.display(-0.5, 2);
+        assertShown("    -0.50");
+        driver.display(0.004, 2);
+        assertShown("     0.00");
+        driver.display(2.5, 0);
+        assertShown("       3");
+        driver.display(Double.NaN, 1);
+        assertShown("--------");
+        driver.display(1e8, 0);
+        assertShown("--------");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void displayDouble_rejectsTooManyDecimals() throws Exception {
+        driver.display(1.0, 8);
+    }
+
+    @Test
+    public void displayText_foldsPeriodsIntoPreviousCharacter() throws Exception {
+        driver.display("12.5");
+        assertShown("     12.5");
+        // second period takes a position of its own
+        driver.display("A..b");
+        assertShown("     A. .b");
+        // characters past 8 positions are dropped, a period still fits
+        driver.display(new StringBuilder("12345678.9"));
+        assertShown("12345678.");
+    }
+
+    @Test
+    public void displayTime_separatesHoursMinutesSeconds() throws Exception {
+        driver.displayTime(1, 2, 3);
+        assertShown("   1.02.03");
+        driver.displayTime(12, 34);
+        assertShown("    12.34");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void displayTime_rejectsInvalidSeconds() throws Exception {
+        driver.displayTime(1, 60);
+    }
+
+    @Test
+    public void alignment_leftStartsAtFirstPosition() throws Exception {
+        driver.setAlignment(TM1838Driver.ALIGN_LEFT);
+        assertEquals(TM1838Driver.ALIGN_LEFT, driver.getAlignment());
+        driver.display(-42);
+        assertShown("-42     ");
+        driver.display("Hi.");
+        assertShown("Hi.      ");
+        driver.display(1.5, 1);
+        assertShown("1.5      ");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void alignment_rejectsUnknownValue() throws Exception {
+        driver.setAlignment(2);
+    }
+}
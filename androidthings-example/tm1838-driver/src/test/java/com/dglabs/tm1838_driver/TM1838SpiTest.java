@@ -0,0 +1,137 @@
+package com.dglabs.tm1838_driver;
+
+import android.support.annotation.NonNull;
+
+import com.dglabs.pio_transport.Pin;
+import com.dglabs.pio_transport.SimulatedTransport;
+import com.dglabs.pio_transport.SpiBus;
+import com.dglabs.pio_transport.Transport;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TM1838SpiTest {
+
+    /**
+     * Simulated transport whose SPI controller shifts MSB first only, like the Raspberry Pi one
+     */
+    private static class MsbFirstTransport implements Transport {
+        final SimulatedTransport transport = new SimulatedTransport(1 << 12);
+        // refuse any bit order, like a failing bus
+        boolean failing = false;
+
+        @Override
+        public Pin openPin(@NonNull String name) throws IOException {
+            return transport.openPin(name);
+        }
+
+        @Override
+        public SpiBus openSpiBus(@NonNull String name) throws IOException {
+            final SpiBus bus = transport.openSpiBus(name);
+            return new SpiBus() {
+                @Override
+                public String getName() { return bus.getName(); }
+
+                @Override
+                public void setMode(int mode) throws IOException { bus.setMode(mode); }
+
+                @Override
+                public void setFrequency(int frequencyHz) throws IOException { bus.setFrequency(frequencyHz); }
+
+                @Override
+                public void setDelay(int delayUs) throws IOException { bus.setDelay(delayUs); }
+
+                @Override
+                public void setBitsPerWord(int bitsPerWord) throws IOException { bus.setBitsPerWord(bitsPerWord); }
+
+                @Override
+                public void setBitJustification(boolean lsbFirst) throws IOException {
+                    if (failing) throw new IOException("bus error");
+                    if (lsbFirst) throw new IOException("LSB first is not supported");
+                    bus.setBitJustification(false);
+                }
+
+                @Override
+                public void setCsChange(boolean csChange) throws IOException { bus.setCsChange(csChange); }
+
+                @Override
+                public void write(byte [] buffer, int length) throws IOException { bus.write(buffer, length); }
+
+                @Override
+                public void read(byte [] buffer, int length) throws IOException { bus.read(buffer, length); }
+
+                @Override
+                public void close() throws IOException { bus.close(); }
+            };
+        }
+    }
+
+    private static byte reverse(byte b) {
+        return (byte)(Integer.reverse(b & 0xFF) >>> 24);
+    }
+
+    private static void show(TM1838Driver driver) throws IOException {
+        driver.display(new int[] {0x3F, 0x06, 0x5B}, 0x02);
+        driver.display('7', 5, true);
+        driver.setBrightness(TM1838Driver.BRIGHTNESS_LOW);
+    }
+
+    @Test
+    public void spi_reversesBytesWhenLsbFirstIsRefused() throws Exception {
+        final SimulatedTransport lsbFirst = new SimulatedTransport(1 << 12);
+        final MsbFirstTransport msbFirst = new MsbFirstTransport();
+        final TM1838Driver reference = new TM1838Driver(lsbFirst, "SPI0.0", TM1838Driver.BRIGHTNESS_HIGH);
+        final TM1838Driver driver = new TM1838Driver(msbFirst, "SPI0.0", TM1838Driver.BRIGHTNESS_HIGH);
+        try {
+            assertTrue(lsbFirst.getSpiBus("SPI0.0").isLsbFirst());
+            assertFalse(msbFirst.transport.getSpiBus("SPI0.0").isLsbFirst());
+            show(reference);
+            show(driver);
+            final byte [] expected = lsbFirst.getSpiBus("SPI0.0").getTrace();
+            final byte [] trace = msbFirst.transport.getSpiBus("SPI0.0").getTrace();
+            assertEquals(expected.length, trace.length);
+            for (int i = 0; i < expected.length; i++) assertEquals("byte " + i, reverse(expected[i]), trace[i]);
+        }
+        finally {
+            reference.close();
+            driver.close();
+        }
+    }
+
+    @Test
+    public void spi_readsKeyboardInEitherBitOrder() throws Exception {
+        final byte [] keys = {0x01, 0x10, (byte)0x80, 0x22};
+        final byte [] reversed = new byte[keys.length];
+        for (int i = 0; i < keys.length; i++) reversed[i] = reverse(keys[i]);
+        final SimulatedTransport lsbFirst = new SimulatedTransport(1 << 12);
+        final MsbFirstTransport msbFirst = new MsbFirstTransport();
+        final TM1838Driver reference = new TM1838Driver(lsbFirst, "SPI0.0", TM1838Driver.BRIGHTNESS_HIGH);
+        final TM1838Driver driver = new TM1838Driver(msbFirst, "SPI0.0", TM1838Driver.BRIGHTNESS_HIGH);
+        try {
+            lsbFirst.getSpiBus("SPI0.0").setReadData(keys);
+            msbFirst.transport.getSpiBus("SPI0.0").setReadData(reversed);
+            assertEquals(0x22801001L, reference.readKeyboard());
+            assertEquals(0x22801001L, driver.readKeyboard());
+        }
+        finally {
+            reference.close();
+            driver.close();
+        }
+    }
+
+    @Test
+    public void spi_reportsBothErrorsWhenBitOrderFails() throws Exception {
+        final MsbFirstTransport transport = new MsbFirstTransport();
+        transport.failing = true;
+        try {
+            new TM1838Driver(transport, "SPI0.0", TM1838Driver.BRIGHTNESS_HIGH).close();
+            fail("IOException expected");
+        }
+        catch (IOException ex) {
+            assertEquals(1, ex.getSuppressed().length);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays animations written by {@link AnimationWriter} on LED matrix or chain.
+ * Frames are decoded one at a time straight into the display, memory use does not depend on
+ * animation length. Source is an InputStream or a (memory mapped) ByteBuffer; only ByteBuffer
+ * sources can loop. Not thread safe.
+ */
+public class AnimationPlayer implements Closeable {
+    private final HC595Driver display;
+    private final InputStream in;
+    private final ByteBuffer buffer;
+    private final int dataStart;
+    private final long [] frames;
+
+    private int repeatRemaining = 0;
+    private int repeatDuration = 0;
+    private int frameDuration = 0;
+    private boolean looping = false;
+    private long framesPlayed = 0;
+
+    /**
+     * Play from stream
+     * @param display LED matrix or chain with at least as many modules as the animation
+     * @param in animation stream, preferably buffered, closed by {@link #close()}
+     * @throws IOException on read error or invalid header
+     */
+    public AnimationPlayer(@NonNull HC595Driver display, @NonNull InputStream in) throws IOException {
+        this.display = display;
+        this.in = in;
+        this.buffer = null;
+        this.dataStart = 0;
+        this.frames = new long[readHeader(display)];
+    }
+
+    /**
+     * Play from buffer, e.g. memory mapped file
+     * @param display LED matrix or chain with at least as many modules as the animation
+     * @param buffer animation bytes from its position to its limit
+     * @throws IOException on invalid header
+     */
+    public AnimationPlayer(@NonNull HC595Driver display, @NonNull ByteBuffer buffer) throws IOException {
+        this.display = display;
+        this.in = null;
+        this.buffer = buffer;
+        this.frames = new long[readHeader(display)];
+        this.dataStart = buffer.position();
+    }
+
+    /**
+     * Play animation file mapped into memory
+     * @param display LED matrix or chain
+     * @param file animation file
+     * @return player
+     * @throws IOException
+     */
+    public static AnimationPlayer open(@NonNull HC595Driver display, @NonNull File file) throws IOException {
+        final FileInputStream stream = new FileInputStream(file);
+        try {
+            final FileChannel channel = stream.getChannel();
+            // mapping stays valid after the channel is closed
+            return new AnimationPlayer(display, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    private int readHeader(HC595Driver display) throws IOException {
+        if (readByte() != AnimationWriter.MAGIC_0 || readByte() != AnimationWriter.MAGIC_1 || readByte() != AnimationWriter.MAGIC_2) {
+            throw new IOException("not an LED matrix animation");
+        }
+        if (readByte() != AnimationWriter.VERSION) throw new IOException("unsupported animation version");
+        final int moduleCount = readByte();
+        if (moduleCount < 1 || moduleCount > display.getModuleCount()) throw new IOException("animation has " + moduleCount + " modules, display has " + display.getModuleCount());
+        return moduleCount;
+    }
+
+    /**
+     * @param looping start again after the last frame, ByteBuffer sources only
+     */
+    public void setLooping(boolean looping) {
+        if (looping && buffer == null) throw new IllegalStateException("only buffer sources can loop");
+        this.looping = looping;
+    }
+
+    public boolean isLooping() { return looping; }
+
+    /**
+     * @return duration of the last shown frame, milliseconds
+     */
+    public int getFrameDuration() { return frameDuration; }
+
+    /**
+     * @return number of frames shown
+     */
+    public long getFramesPlayed() { return framesPlayed; }
+
+    /**
+     * Decode and show next frame. Does not allocate.
+     * @return false at the end of animation
+     * @throws IOException on read error or invalid record
+     */
+    public boolean next() throws IOException {
+        if (repeatRemaining > 0) {
+            repeatRemaining--;
+            frameDuration = repeatDuration;
+            framesPlayed++;
+            return true;
+        }
+        int record = readByte();
+        if (record == AnimationWriter.RECORD_END && looping) {
+            buffer.position(dataStart);
+            for (int m = 0; m < frames.length; m++) frames[m] = 0;
+            record = readByte();
+        }
+        switch (record) {
+            case AnimationWriter.RECORD_END:
+                return false;
+            case AnimationWriter.RECORD_DELTA:
+                frameDuration = readVarint();
+                for (int m = 0; m < frames.length; m++) {
+                    final int mask = readByte();
+                    for (int row = 0; row < 8; row++) {
+                        if ((mask & (1 << row)) != 0) frames[m] ^= (long)readByte() << (row * 8);
+                    }
+                }
+                display.display(frames);
+                framesPlayed++;
+                return true;
+            case AnimationWriter.RECORD_REPEAT:
+                repeatRemaining = readVarint();
+                repeatDuration = readVarint();
+                if (repeatRemaining <= 0) throw new IOException("invalid repeat count");
+                return next();
+            default:
+                throw new IOException("invalid animation record " + record);
+        }
+    }
+
+    /**
+     * Show frames with their durations until the end of animation or until the thread is interrupted.
+     * Frame times are kept against a deadline, decoding time does not accumulate.
+     * @throws IOException on read error or invalid record
+     */
+    public void play() throws IOException {
+        long deadline = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted() && next()) {
+            deadline += TimeUnit.MILLISECONDS.toNanos(frameDuration);
+            for (long now = System.nanoTime(); deadline - now > 0; now = System.nanoTime()) {
+                LockSupport.parkNanos(deadline - now);
+                if (Thread.currentThread().isInterrupted()) return;
+            }
+        }
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("invalid varint");
+    }
+
+    private int readByte() throws IOException {
+        if (buffer != null) {
+            if (!buffer.hasRemaining()) throw new EOFException();
+            return buffer.get() & 0xFF;
+        }
+        final int b = in.read();
+        if (b < 0) throw new EOFException();
+        return b;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) in.close();
+    }
+}
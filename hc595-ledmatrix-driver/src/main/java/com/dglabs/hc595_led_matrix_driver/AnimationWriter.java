@@ -0,0 +1,165 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.support.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes LED matrix animations played by {@link AnimationPlayer}.
+ * <p>
+ * Format: magic "LMA", version byte 1, module count byte, then records:
+ * <ul>
+ * <li>{@code 0x01 duration} delta frame: for every module a row mask byte and one XOR byte
+ * per row set in the mask, applied to the previous frame (initially blank)</li>
+ * <li>{@code 0x02 count duration} previous frame repeated count more times</li>
+ * <li>{@code 0x00} end of animation</li>
+ * </ul>
+ * Durations (milliseconds) and counts are unsigned LEB128 varints.
+ * Identical consecutive frames of the same duration are written as one repeat record.
+ */
+public class AnimationWriter implements Closeable {
+    static final int MAGIC_0 = 'L', MAGIC_1 = 'M', MAGIC_2 = 'A';
+    static final int VERSION = 1;
+
+    static final int RECORD_END = 0x00;
+    static final int RECORD_DELTA = 0x01;
+    static final int RECORD_REPEAT = 0x02;
+
+    private final OutputStream out;
+    private final long [] previous;
+    private boolean started = false;
+    private int repeatCount = 0;
+    private int repeatDuration = 0;
+    private long frameCount = 0;
+    private long bytesWritten = 0;
+
+    /**
+     * Write animation header
+     * @param out destination, closed by {@link #close()}
+     * @param moduleCount modules per frame, 1 for single LED matrix
+     * @throws IOException
+     */
+    public AnimationWriter(@NonNull OutputStream out, int moduleCount) throws IOException {
+        if (moduleCount < 1 || moduleCount > 255) throw new IllegalArgumentException("moduleCount should be in range 1-255");
+        this.out = out;
+        this.previous = new long[moduleCount];
+        writeByte(MAGIC_0); writeByte(MAGIC_1); writeByte(MAGIC_2);
+        writeByte(VERSION);
+        writeByte(moduleCount);
+    }
+
+    public int getModuleCount() { return previous.length; }
+
+    /**
+     * @return number of frames written, repeated ones included
+     */
+    public long getFrameCount() { return frameCount; }
+
+    /**
+     * @return encoded size so far, bytes
+     */
+    public long getBytesWritten() { return bytesWritten; }
+
+    /**
+     * Append single module frame
+     * @param frame frame in {@link Bitboard} format
+     * @param durationMillis how long the frame is shown
+     * @throws IOException
+     */
+    public void writeFrame(long frame, int durationMillis) throws IOException {
+        if (previous.length != 1) throw new IllegalStateException("animation has " + previous.length + " modules");
+        if (durationMillis < 0) throw new IllegalArgumentException("durationMillis should not be negative");
+        frameCount++;
+        if (started && frame == previous[0]) {
+            repeat(durationMillis);
+            return;
+        }
+        flushRepeat();
+        writeByte(RECORD_DELTA);
+        writeVarint(durationMillis);
+        writeDelta(previous[0] ^ frame);
+        previous[0] = frame;
+        started = true;
+    }
+
+    /**
+     * Append frame of all modules
+     * @param frames frame per module in {@link Bitboard} format
+     * @param durationMillis how long the frame is shown
+     * @throws IOException
+     */
+    public void writeFrame(@NonNull long [] frames, int durationMillis) throws IOException {
+        if (frames.length != previous.length) throw new IllegalArgumentException("frames should have " + previous.length + " elements");
+        if (durationMillis < 0) throw new IllegalArgumentException("durationMillis should not be negative");
+        frameCount++;
+        boolean same = started;
+        for (int m = 0; m < frames.length && same; m++) same = frames[m] == previous[m];
+        if (same) {
+            repeat(durationMillis);
+            return;
+        }
+        flushRepeat();
+        writeByte(RECORD_DELTA);
+        writeVarint(durationMillis);
+        for (int m = 0; m < frames.length; m++) {
+            writeDelta(previous[m] ^ frames[m]);
+            previous[m] = frames[m];
+        }
+        started = true;
+    }
+
+    private void repeat(int durationMillis) throws IOException {
+        if (repeatCount > 0 && durationMillis != repeatDuration) flushRepeat();
+        repeatDuration = durationMillis;
+        repeatCount++;
+    }
+
+    private void flushRepeat() throws IOException {
+        if (repeatCount == 0) return;
+        writeByte(RECORD_REPEAT);
+        writeVarint(repeatCount);
+        writeVarint(repeatDuration);
+        repeatCount = 0;
+    }
+
+    private void writeDelta(long delta) throws IOException {
+        int mask = 0;
+        for (int row = 0; row < 8; row++) {
+            if (((delta >>> (row * 8)) & 0xFF) != 0) mask |= 1 << row;
+        }
+        writeByte(mask);
+        for (int row = 0; row < 8; row++) {
+            if ((mask & (1 << row)) != 0) writeByte((int)(delta >>> (row * 8)));
+        }
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    private void writeByte(int b) throws IOException {
+        out.write(b);
+        bytesWritten++;
+    }
+
+    /**
+     * Write end of animation and close destination
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushRepeat();
+            writeByte(RECORD_END);
+        }
+        finally {
+            out.close();
+        }
+    }
+}
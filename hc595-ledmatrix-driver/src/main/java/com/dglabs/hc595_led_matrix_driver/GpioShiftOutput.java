@@ -0,0 +1,54 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.support.annotation.NonNull;
+
+import com.dglabs.pio_transport.Pin;
+
+import java.io.IOException;
+
+/**
+ * Bit-bangs 74HC595 over three GPIO pins: three pin writes per bit, two per latch.
+ */
+class GpioShiftOutput extends ShiftOutput {
+    private final Pin RCLK, SRCLK, DI;
+
+    GpioShiftOutput(@NonNull Pin RCLK, @NonNull Pin SRCLK, @NonNull Pin DI) {
+        this.RCLK = RCLK;
+        this.SRCLK = SRCLK;
+        this.DI = DI;
+    }
+
+    @Override
+    void writeByte(int b) throws IOException {
+        for (int i = 0; i < 8; i++) {
+            DI.setValue(((b << i) & 0x80) != 0);
+            SRCLK.setValue(true);
+            SRCLK.setValue(false);
+        }
+    }
+
+    @Override
+    void latch() throws IOException {
+        RCLK.setValue(true);
+        RCLK.setValue(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            RCLK.setValue(false);
+            SRCLK.setValue(false);
+            DI.setValue(false);
+        }
+        finally {
+            // release all pins even if one failed
+            try {
+                RCLK.close();
+                SRCLK.close();
+            }
+            finally {
+                DI.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+/**
+ * 8x8 grayscale framebuffer stored as bit planes, one {@link Bitboard} per bit of pixel level.
+ * Plane 0 holds the least significant bits. Shown with {@link HC595Driver#display(GrayBitmap)}.
+ * Drawing does not allocate.
+ */
+public class GrayBitmap {
+    /**
+     * maximal number of bits per pixel
+     */
+    public static final int MAX_DEPTH = 8;
+
+    private final long planes[];
+
+    /**
+     * Create empty bitmap
+     * @param depth bits per pixel 1-{@link #MAX_DEPTH}, e.g. 4 for 16 levels
+     */
+    public GrayBitmap(int depth) {
+        if (depth < 1 || depth > MAX_DEPTH) throw new IllegalArgumentException("depth should be in range 1-" + MAX_DEPTH);
+        planes = new long[depth];
+    }
+
+    public int getDepth() { return planes.length; }
+
+    /**
+     * @return highest pixel level, 2^depth - 1
+     */
+    public int getMaxLevel() { return (1 << planes.length) - 1; }
+
+    public void clear() {
+        for (int p = 0; p < planes.length; p++) planes[p] = 0;
+    }
+
+    /**
+     * Set level of all pixels selected by mask, e.g. a shape drawn with {@link Bitboard}
+     * @param mask pixels to set
+     * @param level pixel level 0 - max level
+     */
+    public void draw(long mask, int level) {
+        if (level < 0 || level > getMaxLevel()) throw new IllegalArgumentException("level should be in range 0-" + getMaxLevel());
+        for (int p = 0; p < planes.length; p++) {
+            planes[p] = ((level >> p) & 1) != 0 ? planes[p] | mask : planes[p] & ~mask;
+        }
+    }
+
+    public void setPixel(int x, int y, int level) {
+        draw(Bitboard.pixel(x, y), level);
+    }
+
+    public int getPixel(int x, int y) {
+        final long bit = Bitboard.pixel(x, y);
+        int level = 0;
+        for (int p = 0; p < planes.length; p++) {
+            if ((planes[p] & bit) != 0) level |= 1 << p;
+        }
+        return level;
+    }
+
+    /**
+     * @param plane bit number, 0 is the least significant
+     * @return pixels having that bit set
+     */
+    public long getPlane(int plane) { return planes[plane]; }
+
+    public void setPlane(int plane, long bits) { planes[plane] = bits; }
+}
@@ -4,11 +4,16 @@ import android.os.Process;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
-import com.google.android.things.pio.Gpio;
-import com.google.android.things.pio.PeripheralManagerService;
+import com.dglabs.pio_transport.PeripheralTransport;
+import com.dglabs.pio_transport.Transport;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Created by dennis on 10.03.17.
@@ -19,27 +24,122 @@ public class HC595Driver implements Closeable {
 
     private static final int tab [] = {0xfe,0xfd,0xfb,0xf7,0xef,0xdf,0xbf,0x7f};
 
-    private Gpio RCLK, SRCLK, DI;
+    // bit order reversal of a byte
+    private static final int reverse [] = new int[256];
+    static {
+        for (int i = 0; i < reverse.length; i++) reverse[i] = Integer.reverse(i) >>> 24;
+    }
+
+    // orientation packed into one int so frames are always oriented with a consistent setting
+    private static final int ORIENT_ROTATION_MASK = 0x03;
+    private static final int ORIENT_FLIP_VERTICAL = 0x04;
+    private static final int ORIENT_FLIP_HORIZONTAL = 0x08;
 
-    private boolean stopping = false;
-    private volatile int [] display_buffer = new int [tab.length];
+    /**
+     * default scan rate, frames per second
+     */
+    public static final int DEFAULT_REFRESH_RATE = 200;
+
+    /**
+     * default number of grayscale bit planes shown
+     */
+    public static final int DEFAULT_BIT_DEPTH = 4;
 
-    private boolean flipVertical = false;
-    private boolean flipHorizontal = false;
+    // GPIO or SPI bus of the chain
+    private final ShiftOutput output;
 
-    private Thread refreshThread = new Thread() {
+    private volatile boolean stopping = false;
+    private final int moduleCount;
+    // frame of every module in scan order, already oriented: byte i is shifted MSB first while
+    // address i is latched. Each module is published atomically, never locked.
+    private final AtomicLongArray frames;
+    // odd while frames of the whole chain are being replaced, guarded by frames monitor
+    private final AtomicInteger sequence = new AtomicInteger();
+    // refresh thread copy of frames
+    private final long [] scanFrames;
+    // oriented bit planes of grayscale frame, least significant first, plane p of module m at
+    // p * moduleCount + m. null when monochrome frame is shown.
+    private volatile long [] grayPlanes = null;
+    private volatile int bitDepth = DEFAULT_BIT_DEPTH;
+
+    private volatile int orientation = 0;
+    // row address bytes in scan order, MSB first
+    private volatile int [] addresses = tab;
+
+    // refresh thread parks while there is nothing to show
+    private volatile boolean suspended = false;
+    private volatile boolean idle = false;
+    private volatile long activeNanos = 0;
+    private volatile long idleNanos = 0;
+    private volatile long stateSince = System.nanoTime();
+
+    private volatile int refreshRate = DEFAULT_REFRESH_RATE;
+    private volatile int refreshPriority = Process.THREAD_PRIORITY_DEFAULT;
+    private final RefreshScheduler scheduler = new RefreshScheduler(DEFAULT_REFRESH_RATE, tab.length);
+    private final AtomicLong ioErrors = new AtomicLong();
+    private volatile int statsLogInterval = 0;
+    // logs statistics so the refresh thread never formats them, started on first use
+    private Thread statsThread = null;
+
+    private Thread refreshThread = new Thread("HC595 refresh") {
         @Override
         public void run() {
-            final int [] db = new int [tab.length];
+            int rate = refreshRate;
+            int depth = 1;
+            int priority = Process.THREAD_PRIORITY_DEFAULT;
+            scheduler.setTargetRate(rate, slotsPerFrame(depth));
+            scheduler.start();
+            boolean failing = false;
             while (!stopping) {
-                synchronized (display_buffer) {
-                    for (int i = 0; i < display_buffer.length; i++)
-                        db[i] = display_buffer[flipHorizontal ? i : display_buffer.length - i -1];
+                if (suspended || isBlank()) {
+                    try {
+                        idle();
+                    }
+                    catch (IOException ex) {
+                        failing = refreshFailed(ex, failing);
+                    }
+                    continue;
+                }
+                // one volatile read per scan, the whole frame is consistent
+                final long [] planes = grayPlanes;
+                final int shownDepth = planes == null ? 1 : Math.min(bitDepth, planes.length / moduleCount);
+                if (rate != refreshRate || depth != shownDepth) {
+                    rate = refreshRate;
+                    depth = shownDepth;
+                    scheduler.setTargetRate(rate, slotsPerFrame(depth));
+                }
+                if (priority != refreshPriority) {
+                    // applied once per change: a refused priority is not retried every frame
+                    priority = refreshPriority;
+                    applyPriority(priority);
                 }
+                final int [] address = addresses;
                 try {
-                    write(db);
+                    if (planes == null) {
+                        readFrames(scanFrames);
+                        for (int i = 0; i < address.length; i++) {
+                            writeRowTimed(scanFrames, 0, i, address[i]);
+                            // row stays lit until the next one is latched
+                            scheduler.awaitSlots(1);
+                        }
+                    }
+                    else {
+                        // binary code modulation: plane p of the row is lit for 2^p slots
+                        final int first = planes.length / moduleCount - depth;
+                        for (int i = 0; i < address.length; i++) {
+                            for (int p = 0; p < depth; p++) {
+                                writeRowTimed(planes, (first + p) * moduleCount, i, address[i]);
+                                scheduler.awaitSlots(1L << p);
+                            }
+                        }
+                    }
                 }
-                catch (IOException ex) { break; }
+                catch (IOException ex) {
+                    failing = refreshFailed(ex, failing);
+                    continue;
+                }
+                failing = false;
+                scheduler.endFrame();
             }
         }
     };
@@ -52,100 +152,561 @@ public class HC595Driver implements Closeable {
      * @throws IOException
      */
     public HC595Driver(@NonNull String RCLK_pin, @NonNull String SRCLK_pin, @NonNull String DI_pin) throws IOException {
-        PeripheralManagerService service = new PeripheralManagerService();
-        RCLK = service.openGpio(RCLK_pin); RCLK.setDirection(Gpio.DIRECTION_OUT_INITIALLY_LOW);
-        SRCLK = service.openGpio(SRCLK_pin); SRCLK.setDirection(Gpio.DIRECTION_OUT_INITIALLY_LOW);
-        DI = service.openGpio(DI_pin); DI.setDirection(Gpio.DIRECTION_OUT_INITIALLY_LOW);
+        this(new PeripheralTransport(), RCLK_pin, SRCLK_pin, DI_pin);
+    }
+
+    /**
+     * Create and initialize LED matrix on given transport
+     * @param transport pin source, e.g. {@link PeripheralTransport} or simulated one
+     * @param RCLK_pin memory clock input(STCP)
+     * @param SRCLK_pin shift register clock input(SHCP)
+     * @param DI_pin serial data input
+     * @throws IOException
+     */
+    public HC595Driver(@NonNull Transport transport, @NonNull String RCLK_pin, @NonNull String SRCLK_pin, @NonNull String DI_pin) throws IOException {
+        this(transport, RCLK_pin, SRCLK_pin, DI_pin, 1);
+    }
+
+    /**
+     * Create and initialize chain of LED matrix modules sharing clock and latch lines.
+     * DI of every next module is connected to serial output of the previous one.
+     * @param transport pin source, e.g. {@link PeripheralTransport} or simulated one
+     * @param RCLK_pin memory clock input(STCP)
+     * @param SRCLK_pin shift register clock input(SHCP)
+     * @param DI_pin serial data input of the first module
+     * @param moduleCount number of chained modules
+     * @throws IOException
+     */
+    public HC595Driver(@NonNull Transport transport, @NonNull String RCLK_pin, @NonNull String SRCLK_pin, @NonNull String DI_pin, int moduleCount) throws IOException {
+        this(ShiftOutput.openGpio(transport, RCLK_pin, SRCLK_pin, DI_pin), moduleCount);
+    }
+
+    /**
+     * Create and initialize chain of LED matrix modules on given bus, e.g.
+     * {@link ShiftOutput#openSpi(Transport, String, String)} to send every row with one SPI write.
+     * @param output bus of the chain, closed by {@link #close()}
+     * @param moduleCount number of chained modules
+     */
+    public HC595Driver(@NonNull ShiftOutput output, int moduleCount) {
+        if (moduleCount < 1) throw new IllegalArgumentException("moduleCount should be positive");
+        this.moduleCount = moduleCount;
+        frames = new AtomicLongArray(moduleCount);
+        scanFrames = new long[moduleCount];
+        this.output = output;
 
-        refreshThread.setPriority(Process.THREAD_PRIORITY_LESS_FAVORABLE);
         refreshThread.start();
     }
 
     @Override
     public void close() throws IOException {
         stopping = true;
+        synchronized (this) {
+            if (statsThread != null) LockSupport.unpark(statsThread);
+        }
         refreshThread.interrupt();
-        if (RCLK != null && SRCLK != null && DI != null) {
-            try {
-                RCLK.setValue(false); RCLK.close();
-                SRCLK.setValue(false); SRCLK.close();
-                DI.setValue(false); DI.close();
-            }
-            catch (IOException ex) {
-                Log.e(TAG, "Error closing GPIO", ex);
+        try {
+            refreshThread.join();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            output.close();
+        }
+        catch (IOException ex) {
+            Log.e(TAG, "Error closing output", ex);
+        }
+    }
+
+    /**
+     * Set Linux priority of the calling refresh thread, keep the current one if it is refused
+     */
+    private void applyPriority(int priority) {
+        try {
+            setThreadPriority(priority);
+        }
+        catch (IllegalArgumentException | SecurityException ex) {
+            Log.e(TAG, "Error setting refresh thread priority " + priority, ex);
+        }
+    }
+
+    /**
+     * Called on the refresh thread, overridden by tests to refuse a priority
+     */
+    void setThreadPriority(int priority) {
+        Process.setThreadPriority(priority);
+    }
+
+    /**
+     * Count failed refresh and back off for a frame. Refreshing goes on: the bus may recover.
+     * @param failing previous refresh failed too
+     * @return true
+     */
+    private boolean refreshFailed(IOException ex, boolean failing) {
+        ioErrors.incrementAndGet();
+        // only the first error of a series is logged
+        if (!failing) Log.e(TAG, "Error refreshing LED matrix", ex);
+        LockSupport.parkNanos(scheduler.getFrameNanos());
+        scheduler.start();
+        return true;
+    }
+
+    private class StatsLogger extends Thread {
+        StatsLogger() {
+            super("HC595 stats");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!stopping) {
+                final int interval = statsLogInterval;
+                if (interval <= 0) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(interval);
+                // interval changes unpark the logger and restart the wait
+                for (long now = System.nanoTime(); !stopping && statsLogInterval == interval && deadline - now > 0; now = System.nanoTime()) {
+                    LockSupport.parkNanos(this, deadline - now);
+                }
+                if (!stopping && statsLogInterval == interval) Log.i(TAG, getRefreshStats().toString());
             }
         }
     }
 
-    private void hc595WriteByte(int dat) throws IOException
-    {
-        for(int i=0; i < 8; i++) {
-            if (flipVertical)
-                DI.setValue(((dat >> i) & 0x01) != 0);
-            else
-                DI.setValue(((dat << i) & 0x80) != 0);
-            SRCLK.setValue(true);
-            SRCLK.setValue(false);
+    /**
+     * Latch blank state once and park until there is something to show
+     */
+    private void idle() throws IOException {
+        for (int m = 0; m < moduleCount; m++) {
+            output.writeByte(0);
+            output.writeByte(0xFF);
+        }
+        output.latch();
+        long now = System.nanoTime();
+        activeNanos += now - stateSince;
+        stateSince = now;
+        idle = true;
+        // publishers check idle after publishing, so content published before this point is seen here
+        while (!stopping && (suspended || isBlank())) {
+            LockSupport.park(this);
+        }
+        idle = false;
+        now = System.nanoTime();
+        idleNanos += now - stateSince;
+        stateSince = now;
+        scheduler.start();
+    }
+
+    private boolean isBlank() {
+        final long [] planes = grayPlanes;
+        if (planes != null) {
+            for (long plane : planes) if (plane != 0) return false;
+            return true;
         }
+        for (int m = 0; m < moduleCount; m++) if (frames.get(m) != 0) return false;
+        return true;
     }
 
-    private void hc595SetAddress(int address) throws IOException {
-        hc595WriteByte(address);
-        RCLK.setValue(true);
-        RCLK.setValue(false);
+    /**
+     * Wake refresh thread after new content is published
+     */
+    private void wake() {
+        if (idle) LockSupport.unpark(refreshThread);
     }
 
-    private static final int [] EMPTY = {0, 0, 0, 0, 0, 0, 0, 0};
+    private void writeRowTimed(long [] src, int offset, int row, int address) throws IOException {
+        final long start = System.nanoTime();
+        writeRow(src, offset, row, address);
+        scheduler.addWriteTime(System.nanoTime() - start);
+    }
+
+    private static int slotsPerFrame(int depth) {
+        return tab.length * ((1 << depth) - 1);
+    }
+
+    private static int rowOf(long frame, int row) {
+        return (int)(frame >>> (row * 8)) & 0xFF;
+    }
+
+    /**
+     * Blank all modules
+     */
     public void clear() throws IOException {
-        write(EMPTY);
+        synchronized (frames) {
+            sequence.incrementAndGet();
+            for (int m = 0; m < moduleCount; m++) frames.set(m, 0);
+            sequence.incrementAndGet();
+        }
+        grayPlanes = null;
+    }
+
+    public int getModuleCount() { return moduleCount; }
+
+    /**
+     * Blank the display and stop refreshing until {@link #resume()}. Published frames are kept.
+     */
+    public void suspend() {
+        suspended = true;
+        LockSupport.unpark(refreshThread);
+    }
+
+    /**
+     * Continue refreshing after {@link #suspend()}
+     */
+    public void resume() {
+        suspended = false;
+        LockSupport.unpark(refreshThread);
+    }
+
+    public boolean isSuspended() { return suspended; }
+
+    /**
+     * @return true if refresh thread is parked: display is suspended or shows blank frame
+     */
+    public boolean isIdle() { return idle; }
+
+    /**
+     * @return time refresh thread spent scanning rows, nanoseconds
+     */
+    public long getActiveNanos() {
+        return idle ? activeNanos : activeNanos + System.nanoTime() - stateSince;
+    }
+
+    /**
+     * @return time refresh thread spent parked with blank display, nanoseconds
+     */
+    public long getIdleNanos() {
+        return idle ? idleNanos + System.nanoTime() - stateSince : idleNanos;
+    }
+
+    /**
+     * Copy frames of all modules, consistent with the last whole chain update
+     */
+    private void readFrames(long [] dst) {
+        int seq;
+        do {
+            seq = sequence.get();
+            for (int m = 0; m < dst.length; m++) dst[m] = frames.get(m);
+        } while ((seq & 1) != 0 || seq != sequence.get());
     }
 
     public boolean isFlipVertical() {
-        return flipVertical;
+        return (orientation & ORIENT_FLIP_VERTICAL) != 0;
     }
 
     public void setFlipVertical(boolean flipVertical) {
-        this.flipVertical = flipVertical;
+        setOrientation(flipVertical ? orientation | ORIENT_FLIP_VERTICAL : orientation & ~ORIENT_FLIP_VERTICAL);
     }
 
     public boolean isFlipHorizontal() {
-        return flipHorizontal;
+        return (orientation & ORIENT_FLIP_HORIZONTAL) != 0;
     }
 
     public void setFlipHorizontal(boolean flipHorizontal) {
-        this.flipHorizontal = flipHorizontal;
+        setOrientation(flipHorizontal ? orientation | ORIENT_FLIP_HORIZONTAL : orientation & ~ORIENT_FLIP_HORIZONTAL);
     }
 
     /**
-     * Write a byte of data to the desired
-     * @param data byte of data to display
-     * @param row the row number 0-7
-     * @throws IOException
+     * @return clockwise rotation in degrees: 0, 90, 180 or 270
      */
-    private void write(int data, int row) throws IOException {
-        if (row < 0 || row >= tab.length) throw new IllegalArgumentException("row should be in 0-" + (tab.length - 1));
-        hc595WriteByte(data);
-        hc595SetAddress(tab[row]);
+    public int getRotation() {
+        return (orientation & ORIENT_ROTATION_MASK) * 90;
     }
 
     /**
-     * Write 8 bytes of image to the LED matrix
-     * @param data bitmap array
+     * Rotate shown image clockwise in {@link Bitboard} coordinates. Rotation is applied before flips.
+     * @param degrees 0, 90, 180 or 270
+     */
+    public void setRotation(int degrees) {
+        if (degrees != 0 && degrees != 90 && degrees != 180 && degrees != 270) throw new IllegalArgumentException("degrees should be 0, 90, 180 or 270");
+        setOrientation((orientation & ~ORIENT_ROTATION_MASK) | degrees / 90);
+    }
+
+    /**
+     * Re-orient shown frame and rebuild address table for new settings.
+     * Orientation is meant to be configured before showing frames: a frame published while
+     * the setting changes may keep the old orientation until the next one.
+     */
+    private synchronized void setOrientation(int newOrientation) {
+        final int oldOrientation = orientation;
+        if (newOrientation == oldOrientation) return;
+        final int [] newAddresses = new int[tab.length];
+        for (int i = 0; i < tab.length; i++) {
+            newAddresses[i] = (newOrientation & ORIENT_FLIP_VERTICAL) != 0 ? reverse[tab[i]] : tab[i];
+        }
+        orientation = newOrientation;
+        addresses = newAddresses;
+        synchronized (frames) {
+            sequence.incrementAndGet();
+            for (int m = 0; m < moduleCount; m++) {
+                long current;
+                do {
+                    current = frames.get(m);
+                } while (!frames.compareAndSet(m, current, orient(unorient(current, oldOrientation), newOrientation)));
+            }
+            sequence.incrementAndGet();
+        }
+        final long [] planes = grayPlanes;
+        if (planes != null) {
+            final long [] reoriented = new long[planes.length];
+            for (int p = 0; p < planes.length; p++) reoriented[p] = orient(unorient(planes[p], oldOrientation), newOrientation);
+            grayPlanes = reoriented;
+        }
+        onOrientationChanged();
+    }
+
+    /**
+     * Called after flip or rotation settings change, e.g. to rebuild pre-oriented glyph tables.
+     * Called holding the driver lock: subclasses rebuilding tables from other settings should
+     * change those settings synchronized on the driver too, so no rebuild is lost.
+     */
+    protected void onOrientationChanged() {}
+
+    /**
+     * Transform frame into scan order bytes for the current orientation
+     * @param frame frame in {@link Bitboard} format
+     * @return frame for {@link #displayOriented(long)}
+     */
+    protected long orient(long frame) {
+        return orient(frame, orientation);
+    }
+
+    private static long orient(long frame, int orientation) {
+        frame = Bitboard.rotate(frame, (orientation & ORIENT_ROTATION_MASK) * 90);
+        // rows are scanned bottom up unless flipped horizontally
+        if ((orientation & ORIENT_FLIP_HORIZONTAL) == 0) frame = Bitboard.flipY(frame);
+        // bytes are shifted MSB first, flipped vertically they go LSB first
+        if ((orientation & ORIENT_FLIP_VERTICAL) != 0) frame = Bitboard.flipX(frame);
+        return frame;
+    }
+
+    private static long unorient(long frame, int orientation) {
+        if ((orientation & ORIENT_FLIP_VERTICAL) != 0) frame = Bitboard.flipX(frame);
+        if ((orientation & ORIENT_FLIP_HORIZONTAL) == 0) frame = Bitboard.flipY(frame);
+        return Bitboard.rotate(frame, (4 - (orientation & ORIENT_ROTATION_MASK)) % 4 * 90);
+    }
+
+    /**
+     * Set target scan rate. Each row is lit for 1/(8 * rate) seconds.
+     * @param rateHz full frames per second, {@link #DEFAULT_REFRESH_RATE} by default
+     */
+    public void setRefreshRate(int rateHz) {
+        if (rateHz <= 0) throw new IllegalArgumentException("rateHz should be positive");
+        refreshRate = rateHz;
+    }
+
+    public int getRefreshRate() { return refreshRate; }
+
+    /**
+     * Set Linux priority of the refresh thread, e.g. THREAD_PRIORITY_DISPLAY for steadier rows.
+     * A priority refused by the system is logged and the previous one is kept
+     * @param priority one of android.os.Process.THREAD_PRIORITY_* constants, THREAD_PRIORITY_DEFAULT by default
+     */
+    public void setRefreshPriority(int priority) { refreshPriority = priority; }
+
+    public int getRefreshPriority() { return refreshPriority; }
+
+    /**
+     * Set number of bit planes shown for grayscale frames. Each extra bit doubles the number of
+     * row writes per frame: with depth d every frame takes 8 * (2^d - 1) time slots.
+     * Deeper bitmaps are shown with their most significant planes.
+     * @param bits 1-{@link GrayBitmap#MAX_DEPTH}, {@link #DEFAULT_BIT_DEPTH} by default
+     */
+    public void setBitDepth(int bits) {
+        if (bits < 1 || bits > GrayBitmap.MAX_DEPTH) throw new IllegalArgumentException("bits should be in range 1-" + GrayBitmap.MAX_DEPTH);
+        bitDepth = bits;
+    }
+
+    public int getBitDepth() { return bitDepth; }
+
+    /**
+     * Estimate refresh rate reachable at given grayscale depth. The shortest slot can not be
+     * shorter than one row write, measured by the refresh thread over the last second.
+     * @param bits bit depth 1-{@link GrayBitmap#MAX_DEPTH}
+     * @return full frames per second, not more than target refresh rate. Target rate until first measurement.
+     */
+    public float getEffectiveRefreshRate(int bits) {
+        if (bits < 1 || bits > GrayBitmap.MAX_DEPTH) throw new IllegalArgumentException("bits should be in range 1-" + GrayBitmap.MAX_DEPTH);
+        final long writeNanos = scheduler.getWriteNanos();
+        final int rate = refreshRate;
+        if (writeNanos <= 0) return rate;
+        return Math.min(rate, 1e9f / ((float)slotsPerFrame(bits) * writeNanos));
+    }
+
+    /**
+     * @return snapshot of refresh thread statistics: row write and frame time histograms, jitter, frame rate and IO errors
+     */
+    public RefreshStats getRefreshStats() { return scheduler.snapshot(ioErrors.get()); }
+
+    /**
+     * Clear histograms and jitter, takes effect at the end of the current frame. IO error count is kept.
+     */
+    public void resetRefreshStats() { scheduler.requestReset(); }
+
+    /**
+     * Periodically log refresh statistics to logcat. Snapshots are taken and formatted on a
+     * separate logging thread, the refresh thread does not allocate for them
+     * @param seconds interval, 0 disables logging (default)
+     */
+    public synchronized void setStatsLogInterval(int seconds) {
+        if (seconds < 0) throw new IllegalArgumentException("seconds should not be negative");
+        statsLogInterval = seconds;
+        if (statsThread == null) {
+            if (seconds == 0) return;
+            statsThread = new StatsLogger();
+            statsThread.start();
+        }
+        LockSupport.unpark(statsThread);
+    }
+
+    public int getStatsLogInterval() { return statsLogInterval; }
+
+    /**
+     * @return average duration of one row write over the last second in nanoseconds, 0 until measured
+     */
+    public long getRowWriteNanos() { return scheduler.getWriteNanos(); }
+
+    /**
+     * @return full frames per second achieved by the refresh thread over the last second
+     */
+    public float getAchievedRefreshRate() { return scheduler.getAchievedRate(); }
+
+    /**
+     * @return CPU load of the refresh thread over the last second, 1.0 is one full core
+     */
+    public float getRefreshCpuLoad() { return scheduler.getCpuLoad(); }
+
+    /**
+     * Shift one row of every module, farthest module first, and latch them all at once
+     * @param src frames of modules
+     * @param offset index of module 0 frame in src
+     * @param row row number in scan order 0-7
+     * @param address row address byte
      * @throws IOException
      */
-    private void write(@NonNull int [] data) throws IOException {
-        for (int i = 0; i < tab.length; i++)
-            write(data[i], i);
+    private void writeRow(long [] src, int offset, int row, int address) throws IOException {
+        for (int m = moduleCount - 1; m >= 0; m--) {
+            output.writeByte(rowOf(src[offset + m], row));
+            output.writeByte(address);
+        }
+        output.latch();
     }
 
     /**
-     * Write 8 bytes of image to the LED matrix
+     * Write 8 bytes of image to the LED matrix (first module of a chain). Rows missing in shorter array keep their content.
      * @param data bitmap array
      */
     public void display(@NonNull int [] data) {
-        synchronized (display_buffer) {
-            for (int i = 0; i < display_buffer.length && i < data.length; i++) display_buffer[i] = data[i];
+        grayPlanes = null;
+        final int rows = Math.min(data.length, tab.length);
+        long packed = 0;
+        for (int i = 0; i < rows; i++) packed |= (long)(data[i] & 0xFF) << (i * 8);
+        if (rows == tab.length) {
+            display(packed);
+            return;
+        }
+        final long mask = (1L << (rows * 8)) - 1;
+        final int o = orientation;
+        long current;
+        do {
+            current = frames.get(0);
+        } while (!frames.compareAndSet(0, current, orient((unorient(current, o) & ~mask) | packed, o)));
+        wake();
+    }
+
+    /**
+     * Show 8x8 frame packed into a long: row i in bits 8*i..8*i+7, same bit order as {@link #display(int[])}.
+     * Wait-free, may be called from any thread.
+     * @param frame packed frame
+     */
+    public void display(long frame) {
+        display(0, frame);
+    }
+
+    /**
+     * Show packed frame on one module of the chain. Wait-free, may be called from any thread.
+     * Does not take part in the consistency of {@link #display(long[])}: a scan may show modules
+     * updated by several calls half applied, use {@link #display(long[])} to change them together.
+     * @param module module number, 0 is connected to the controller
+     * @param frame packed frame
+     */
+    public void display(int module, long frame) {
+        if (module < 0 || module >= moduleCount) throw new IllegalArgumentException("module should be in range 0-" + (moduleCount - 1));
+        frames.set(module, orient(frame, orientation));
+        grayPlanes = null;
+        wake();
+    }
+
+    /**
+     * Show packed frames on the whole chain at once, refresh thread never mixes old and new ones.
+     * @param frames frame per module, module 0 is connected to the controller. Modules missing in shorter array keep their content.
+     */
+    public void display(@NonNull long [] frames) {
+        if (frames.length > moduleCount) throw new IllegalArgumentException("frames should have at most " + moduleCount + " elements");
+        final int o = orientation;
+        synchronized (this.frames) {
+            sequence.incrementAndGet();
+            for (int m = 0; m < frames.length; m++) this.frames.set(m, orient(frames[m], o));
+            sequence.incrementAndGet();
         }
+        grayPlanes = null;
+        wake();
     }
 
+    /**
+     * Show frame already transformed with {@link #orient(long)}, e.g. from a pre-oriented table
+     * @param oriented frame in scan order
+     */
+    protected void displayOriented(long oriented) {
+        frames.set(0, oriented);
+        grayPlanes = null;
+        wake();
+    }
+
+    /**
+     * Show grayscale frame with binary code modulation on the first module, others are blank.
+     * The bitmap is copied, it may be reused. Shown until the next monochrome or grayscale frame.
+     * @param bitmap grayscale frame
+     */
+    public void display(@NonNull GrayBitmap bitmap) {
+        final long [] planes = new long[bitmap.getDepth() * moduleCount];
+        orientPlanes(bitmap, 0, planes);
+        grayPlanes = planes;
+        wake();
+    }
+
+    /**
+     * Show grayscale frames on the whole chain at once, modules missing in shorter array are blank.
+     * @param bitmaps frame per module, all of the same depth
+     */
+    public void display(@NonNull GrayBitmap [] bitmaps) {
+        if (bitmaps.length == 0 || bitmaps.length > moduleCount) throw new IllegalArgumentException("bitmaps should have 1-" + moduleCount + " elements");
+        final int depth = bitmaps[0].getDepth();
+        final long [] planes = new long[depth * moduleCount];
+        for (int m = 0; m < bitmaps.length; m++) {
+            if (bitmaps[m].getDepth() != depth) throw new IllegalArgumentException("bitmaps should have the same depth");
+            orientPlanes(bitmaps[m], m, planes);
+        }
+        grayPlanes = planes;
+        wake();
+    }
+
+    private void orientPlanes(GrayBitmap bitmap, int module, long [] planes) {
+        final int o = orientation;
+        for (int p = 0; p < bitmap.getDepth(); p++) planes[p * moduleCount + module] = orient(bitmap.getPlane(p), o);
+    }
+
+    /**
+     * @return currently shown frame of the first module packed into a long
+     */
+    public long getFrame() { return getFrame(0); }
+
+    /**
+     * @param module module number, 0 is connected to the controller
+     * @return currently shown frame of the module packed into a long
+     */
+    public long getFrame(int module) { return unorient(frames.get(module), orientation); }
+
 }
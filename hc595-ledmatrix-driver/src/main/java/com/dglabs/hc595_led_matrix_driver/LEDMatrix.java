@@ -2,6 +2,8 @@ package com.dglabs.hc595_led_matrix_driver;
 
 import android.support.annotation.NonNull;
 
+import com.dglabs.pio_transport.Transport;
+
 import java.io.IOException;
 
 /**
@@ -15,137 +17,147 @@ public class LEDMatrix extends HC595Driver {
 
     private static final String TAG = LEDMatrix.class.getSimpleName();
 
-    private static final int font[][] = {
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0000 (nul)
-        { 0x3C,0x42,0x95,0xB1,0xB1,0x95,0x42,0x3C }, // // U+0001 = :)
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0002
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0003
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0004
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0005
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0006
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0007
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0008
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0009
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+000A
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+000B
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+000C
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+000D
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+000E
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+000F
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0010
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0011
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0012
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0013
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0014
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0015
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0016
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0017
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0018
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0019
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+001A
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+001B
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+001C
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+001D
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+001E
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+001F
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0020 (space)
-        { 0x18, 0x3C, 0x3C, 0x18, 0x18, 0x00, 0x18, 0x00},   // U+0021 (!)
-        { 0x36, 0x36, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0022 (")
-        { 0x36, 0x36, 0x7F, 0x36, 0x7F, 0x36, 0x36, 0x00},   // U+0023 (#)
-        { 0x0C, 0x3E, 0x03, 0x1E, 0x30, 0x1F, 0x0C, 0x00},   // U+0024 ($)
-        { 0x00, 0x63, 0x33, 0x18, 0x0C, 0x66, 0x63, 0x00},   // U+0025 (%)
-        { 0x1C, 0x36, 0x1C, 0x6E, 0x3B, 0x33, 0x6E, 0x00},   // U+0026 (&)
-        { 0x06, 0x06, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0027 (')
-        { 0x18, 0x0C, 0x06, 0x06, 0x06, 0x0C, 0x18, 0x00},   // U+0028 (()
-        { 0x06, 0x0C, 0x18, 0x18, 0x18, 0x0C, 0x06, 0x00},   // U+0029 ())
-        { 0x00, 0x66, 0x3C, 0xFF, 0x3C, 0x66, 0x00, 0x00},   // U+002A (*)
-        { 0x00, 0x0C, 0x0C, 0x3F, 0x0C, 0x0C, 0x00, 0x00},   // U+002B (+)
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x0C, 0x0C, 0x06},   // U+002C (,)
-        { 0x00, 0x00, 0x00, 0x3F, 0x00, 0x00, 0x00, 0x00},   // U+002D (-)
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x0C, 0x0C, 0x00},   // U+002E (.)
-        { 0x60, 0x30, 0x18, 0x0C, 0x06, 0x03, 0x01, 0x00},   // U+002F (/)
-        { 0x3E, 0x63, 0x73, 0x7B, 0x6F, 0x67, 0x3E, 0x00},   // U+0030 (0)
-        { 0x0C, 0x0E, 0x0C, 0x0C, 0x0C, 0x0C, 0x3F, 0x00},   // U+0031 (1)
-        { 0x1E, 0x33, 0x30, 0x1C, 0x06, 0x33, 0x3F, 0x00},   // U+0032 (2)
-        { 0x1E, 0x33, 0x30, 0x1C, 0x30, 0x33, 0x1E, 0x00},   // U+0033 (3)
-        { 0x38, 0x3C, 0x36, 0x33, 0x7F, 0x30, 0x78, 0x00},   // U+0034 (4)
-        { 0x3F, 0x03, 0x1F, 0x30, 0x30, 0x33, 0x1E, 0x00},   // U+0035 (5)
-        { 0x1C, 0x06, 0x03, 0x1F, 0x33, 0x33, 0x1E, 0x00},   // U+0036 (6)
-        { 0x3F, 0x33, 0x30, 0x18, 0x0C, 0x0C, 0x0C, 0x00},   // U+0037 (7)
-        { 0x1E, 0x33, 0x33, 0x1E, 0x33, 0x33, 0x1E, 0x00},   // U+0038 (8)
-        { 0x1E, 0x33, 0x33, 0x3E, 0x30, 0x18, 0x0E, 0x00},   // U+0039 (9)
-        { 0x00, 0x0C, 0x0C, 0x00, 0x00, 0x0C, 0x0C, 0x00},   // U+003A (:)
-        { 0x00, 0x0C, 0x0C, 0x00, 0x00, 0x0C, 0x0C, 0x06},   // U+003B (//)
-        { 0x18, 0x0C, 0x06, 0x03, 0x06, 0x0C, 0x18, 0x00},   // U+003C (<)
-        { 0x00, 0x00, 0x3F, 0x00, 0x00, 0x3F, 0x00, 0x00},   // U+003D (=)
-        { 0x06, 0x0C, 0x18, 0x30, 0x18, 0x0C, 0x06, 0x00},   // U+003E (>)
-        { 0x1E, 0x33, 0x30, 0x18, 0x0C, 0x00, 0x0C, 0x00},   // U+003F (?)
-        { 0x3E, 0x63, 0x7B, 0x7B, 0x7B, 0x03, 0x1E, 0x00},   // U+0040 (@)
-        { 0x0C, 0x1E, 0x33, 0x33, 0x3F, 0x33, 0x33, 0x00},   // U+0041 (A)
-        { 0x3F, 0x66, 0x66, 0x3E, 0x66, 0x66, 0x3F, 0x00},   // U+0042 (B)
-        { 0x3C, 0x66, 0x03, 0x03, 0x03, 0x66, 0x3C, 0x00},   // U+0043 (C)
-        { 0x1F, 0x36, 0x66, 0x66, 0x66, 0x36, 0x1F, 0x00},   // U+0044 (D)
-        { 0x7F, 0x46, 0x16, 0x1E, 0x16, 0x46, 0x7F, 0x00},   // U+0045 (E)
-        { 0x7F, 0x46, 0x16, 0x1E, 0x16, 0x06, 0x0F, 0x00},   // U+0046 (F)
-        { 0x3C, 0x66, 0x03, 0x03, 0x73, 0x66, 0x7C, 0x00},   // U+0047 (G)
-        { 0x33, 0x33, 0x33, 0x3F, 0x33, 0x33, 0x33, 0x00},   // U+0048 (H)
-        { 0x1E, 0x0C, 0x0C, 0x0C, 0x0C, 0x0C, 0x1E, 0x00},   // U+0049 (I)
-        { 0x78, 0x30, 0x30, 0x30, 0x33, 0x33, 0x1E, 0x00},   // U+004A (J)
-        { 0x67, 0x66, 0x36, 0x1E, 0x36, 0x66, 0x67, 0x00},   // U+004B (K)
-        { 0x0F, 0x06, 0x06, 0x06, 0x46, 0x66, 0x7F, 0x00},   // U+004C (L)
-        { 0x63, 0x77, 0x7F, 0x7F, 0x6B, 0x63, 0x63, 0x00},   // U+004D (M)
-        { 0x63, 0x67, 0x6F, 0x7B, 0x73, 0x63, 0x63, 0x00},   // U+004E (N)
-        { 0x1C, 0x36, 0x63, 0x63, 0x63, 0x36, 0x1C, 0x00},   // U+004F (O)
-        { 0x3F, 0x66, 0x66, 0x3E, 0x06, 0x06, 0x0F, 0x00},   // U+0050 (P)
-        { 0x1E, 0x33, 0x33, 0x33, 0x3B, 0x1E, 0x38, 0x00},   // U+0051 (Q)
-        { 0x3F, 0x66, 0x66, 0x3E, 0x36, 0x66, 0x67, 0x00},   // U+0052 (R)
-        { 0x1E, 0x33, 0x07, 0x0E, 0x38, 0x33, 0x1E, 0x00},   // U+0053 (S)
-        { 0x3F, 0x2D, 0x0C, 0x0C, 0x0C, 0x0C, 0x1E, 0x00},   // U+0054 (T)
-        { 0x33, 0x33, 0x33, 0x33, 0x33, 0x33, 0x3F, 0x00},   // U+0055 (U)
-        { 0x33, 0x33, 0x33, 0x33, 0x33, 0x1E, 0x0C, 0x00},   // U+0056 (V)
-        { 0x63, 0x63, 0x63, 0x6B, 0x7F, 0x77, 0x63, 0x00},   // U+0057 (W)
-        { 0x63, 0x63, 0x36, 0x1C, 0x1C, 0x36, 0x63, 0x00},   // U+0058 (X)
-        { 0x33, 0x33, 0x33, 0x1E, 0x0C, 0x0C, 0x1E, 0x00},   // U+0059 (Y)
-        { 0x7F, 0x63, 0x31, 0x18, 0x4C, 0x66, 0x7F, 0x00},   // U+005A (Z)
-        { 0x1E, 0x06, 0x06, 0x06, 0x06, 0x06, 0x1E, 0x00},   // U+005B ([)
-        { 0x03, 0x06, 0x0C, 0x18, 0x30, 0x60, 0x40, 0x00},   // U+005C (\)
-        { 0x1E, 0x18, 0x18, 0x18, 0x18, 0x18, 0x1E, 0x00},   // U+005D (])
-        { 0x08, 0x1C, 0x36, 0x63, 0x00, 0x00, 0x00, 0x00},   // U+005E (^)
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0xFF},   // U+005F (_)
-        { 0x0C, 0x0C, 0x18, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+0060 (`)
-        { 0x00, 0x00, 0x1E, 0x30, 0x3E, 0x33, 0x6E, 0x00},   // U+0061 (a)
-        { 0x07, 0x06, 0x06, 0x3E, 0x66, 0x66, 0x3B, 0x00},   // U+0062 (b)
-        { 0x00, 0x00, 0x1E, 0x33, 0x03, 0x33, 0x1E, 0x00},   // U+0063 (c)
-        { 0x38, 0x30, 0x30, 0x3e, 0x33, 0x33, 0x6E, 0x00},   // U+0064 (d)
-        { 0x00, 0x00, 0x1E, 0x33, 0x3f, 0x03, 0x1E, 0x00},   // U+0065 (e)
-        { 0x1C, 0x36, 0x06, 0x0f, 0x06, 0x06, 0x0F, 0x00},   // U+0066 (f)
-        { 0x00, 0x00, 0x6E, 0x33, 0x33, 0x3E, 0x30, 0x1F},   // U+0067 (g)
-        { 0x07, 0x06, 0x36, 0x6E, 0x66, 0x66, 0x67, 0x00},   // U+0068 (h)
-        { 0x0C, 0x00, 0x0E, 0x0C, 0x0C, 0x0C, 0x1E, 0x00},   // U+0069 (i)
-        { 0x30, 0x00, 0x30, 0x30, 0x30, 0x33, 0x33, 0x1E},   // U+006A (j)
-        { 0x07, 0x06, 0x66, 0x36, 0x1E, 0x36, 0x67, 0x00},   // U+006B (k)
-        { 0x0E, 0x0C, 0x0C, 0x0C, 0x0C, 0x0C, 0x1E, 0x00},   // U+006C (l)
-        { 0x00, 0x00, 0x33, 0x7F, 0x7F, 0x6B, 0x63, 0x00},   // U+006D (m)
-        { 0x00, 0x00, 0x1F, 0x33, 0x33, 0x33, 0x33, 0x00},   // U+006E (n)
-        { 0x00, 0x00, 0x1E, 0x33, 0x33, 0x33, 0x1E, 0x00},   // U+006F (o)
-        { 0x00, 0x00, 0x3B, 0x66, 0x66, 0x3E, 0x06, 0x0F},   // U+0070 (p)
-        { 0x00, 0x00, 0x6E, 0x33, 0x33, 0x3E, 0x30, 0x78},   // U+0071 (q)
-        { 0x00, 0x00, 0x3B, 0x6E, 0x66, 0x06, 0x0F, 0x00},   // U+0072 (r)
-        { 0x00, 0x00, 0x3E, 0x03, 0x1E, 0x30, 0x1F, 0x00},   // U+0073 (s)
-        { 0x08, 0x0C, 0x3E, 0x0C, 0x0C, 0x2C, 0x18, 0x00},   // U+0074 (t)
-        { 0x00, 0x00, 0x33, 0x33, 0x33, 0x33, 0x6E, 0x00},   // U+0075 (u)
-        { 0x00, 0x00, 0x33, 0x33, 0x33, 0x1E, 0x0C, 0x00},   // U+0076 (v)
-        { 0x00, 0x00, 0x63, 0x6B, 0x7F, 0x7F, 0x36, 0x00},   // U+0077 (w)
-        { 0x00, 0x00, 0x63, 0x36, 0x1C, 0x36, 0x63, 0x00},   // U+0078 (x)
-        { 0x00, 0x00, 0x33, 0x33, 0x33, 0x3E, 0x30, 0x1F},   // U+0079 (y)
-        { 0x00, 0x00, 0x3F, 0x19, 0x0C, 0x26, 0x3F, 0x00},   // U+007A (z)
-        { 0x38, 0x0C, 0x0C, 0x07, 0x0C, 0x0C, 0x38, 0x00},   // U+007B ({)
-        { 0x18, 0x18, 0x18, 0x00, 0x18, 0x18, 0x18, 0x00},   // U+007C (|)
-        { 0x07, 0x0C, 0x0C, 0x38, 0x0C, 0x0C, 0x07, 0x00},   // U+007D (})
-        { 0x6E, 0x3B, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00},   // U+007E (~)
-        { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00}    // U+007F
+    // row y of a glyph is byte y, leftmost pixel is bit 0
+    private static final long font[] = {
+        0x0000000000000000L,   // U+0000 (nul)
+        0x3C4295B1B195423CL,   // U+0001 = :)
+        0x0000000000000000L,   // U+0002
+        0x0000000000000000L,   // U+0003
+        0x0000000000000000L,   // U+0004
+        0x0000000000000000L,   // U+0005
+        0x0000000000000000L,   // U+0006
+        0x0000000000000000L,   // U+0007
+        0x0000000000000000L,   // U+0008
+        0x0000000000000000L,   // U+0009
+        0x0000000000000000L,   // U+000A
+        0x0000000000000000L,   // U+000B
+        0x0000000000000000L,   // U+000C
+        0x0000000000000000L,   // U+000D
+        0x0000000000000000L,   // U+000E
+        0x0000000000000000L,   // U+000F
+        0x0000000000000000L,   // U+0010
+        0x0000000000000000L,   // U+0011
+        0x0000000000000000L,   // U+0012
+        0x0000000000000000L,   // U+0013
+        0x0000000000000000L,   // U+0014
+        0x0000000000000000L,   // U+0015
+        0x0000000000000000L,   // U+0016
+        0x0000000000000000L,   // U+0017
+        0x0000000000000000L,   // U+0018
+        0x0000000000000000L,   // U+0019
+        0x0000000000000000L,   // U+001A
+        0x0000000000000000L,   // U+001B
+        0x0000000000000000L,   // U+001C
+        0x0000000000000000L,   // U+001D
+        0x0000000000000000L,   // U+001E
+        0x0000000000000000L,   // U+001F
+        0x0000000000000000L,   // U+0020 (space)
+        0x00180018183C3C18L,   // U+0021 (!)
+        0x0000000000003636L,   // U+0022 (")
+        0x0036367F367F3636L,   // U+0023 (#)
+        0x000C1F301E033E0CL,   // U+0024 ($)
+        0x0063660C18336300L,   // U+0025 (%)
+        0x006E333B6E1C361CL,   // U+0026 (&)
+        0x0000000000030606L,   // U+0027 (')
+        0x00180C0606060C18L,   // U+0028 (()
+        0x00060C1818180C06L,   // U+0029 ())
+        0x0000663CFF3C6600L,   // U+002A (*)
+        0x00000C0C3F0C0C00L,   // U+002B (+)
+        0x060C0C0000000000L,   // U+002C (,)
+        0x000000003F000000L,   // U+002D (-)
+        0x000C0C0000000000L,   // U+002E (.)
+        0x000103060C183060L,   // U+002F (/)
+        0x003E676F7B73633EL,   // U+0030 (0)
+        0x003F0C0C0C0C0E0CL,   // U+0031 (1)
+        0x003F33061C30331EL,   // U+0032 (2)
+        0x001E33301C30331EL,   // U+0033 (3)
+        0x0078307F33363C38L,   // U+0034 (4)
+        0x001E3330301F033FL,   // U+0035 (5)
+        0x001E33331F03061CL,   // U+0036 (6)
+        0x000C0C0C1830333FL,   // U+0037 (7)
+        0x001E33331E33331EL,   // U+0038 (8)
+        0x000E18303E33331EL,   // U+0039 (9)
+        0x000C0C00000C0C00L,   // U+003A (:)
+        0x060C0C00000C0C00L,   // U+003B (//)
+        0x00180C0603060C18L,   // U+003C (<)
+        0x00003F00003F0000L,   // U+003D (=)
+        0x00060C1830180C06L,   // U+003E (>)
+        0x000C000C1830331EL,   // U+003F (?)
+        0x001E037B7B7B633EL,   // U+0040 (@)
+        0x0033333F33331E0CL,   // U+0041 (A)
+        0x003F66663E66663FL,   // U+0042 (B)
+        0x003C66030303663CL,   // U+0043 (C)
+        0x001F36666666361FL,   // U+0044 (D)
+        0x007F46161E16467FL,   // U+0045 (E)
+        0x000F06161E16467FL,   // U+0046 (F)
+        0x007C66730303663CL,   // U+0047 (G)
+        0x003333333F333333L,   // U+0048 (H)
+        0x001E0C0C0C0C0C1EL,   // U+0049 (I)
+        0x001E333330303078L,   // U+004A (J)
+        0x006766361E366667L,   // U+004B (K)
+        0x007F66460606060FL,   // U+004C (L)
+        0x0063636B7F7F7763L,   // U+004D (M)
+        0x006363737B6F6763L,   // U+004E (N)
+        0x001C36636363361CL,   // U+004F (O)
+        0x000F06063E66663FL,   // U+0050 (P)
+        0x00381E3B3333331EL,   // U+0051 (Q)
+        0x006766363E66663FL,   // U+0052 (R)
+        0x001E33380E07331EL,   // U+0053 (S)
+        0x001E0C0C0C0C2D3FL,   // U+0054 (T)
+        0x003F333333333333L,   // U+0055 (U)
+        0x000C1E3333333333L,   // U+0056 (V)
+        0x0063777F6B636363L,   // U+0057 (W)
+        0x0063361C1C366363L,   // U+0058 (X)
+        0x001E0C0C1E333333L,   // U+0059 (Y)
+        0x007F664C1831637FL,   // U+005A (Z)
+        0x001E06060606061EL,   // U+005B ([)
+        0x00406030180C0603L,   // U+005C (\)
+        0x001E18181818181EL,   // U+005D (])
+        0x0000000063361C08L,   // U+005E (^)
+        0xFF00000000000000L,   // U+005F (_)
+        0x0000000000180C0CL,   // U+0060 (`)
+        0x006E333E301E0000L,   // U+0061 (a)
+        0x003B66663E060607L,   // U+0062 (b)
+        0x001E3303331E0000L,   // U+0063 (c)
+        0x006E33333E303038L,   // U+0064 (d)
+        0x001E033F331E0000L,   // U+0065 (e)
+        0x000F06060F06361CL,   // U+0066 (f)
+        0x1F303E33336E0000L,   // U+0067 (g)
+        0x006766666E360607L,   // U+0068 (h)
+        0x001E0C0C0C0E000CL,   // U+0069 (i)
+        0x1E33333030300030L,   // U+006A (j)
+        0x0067361E36660607L,   // U+006B (k)
+        0x001E0C0C0C0C0C0EL,   // U+006C (l)
+        0x00636B7F7F330000L,   // U+006D (m)
+        0x00333333331F0000L,   // U+006E (n)
+        0x001E3333331E0000L,   // U+006F (o)
+        0x0F063E66663B0000L,   // U+0070 (p)
+        0x78303E33336E0000L,   // U+0071 (q)
+        0x000F06666E3B0000L,   // U+0072 (r)
+        0x001F301E033E0000L,   // U+0073 (s)
+        0x00182C0C0C3E0C08L,   // U+0074 (t)
+        0x006E333333330000L,   // U+0075 (u)
+        0x000C1E3333330000L,   // U+0076 (v)
+        0x00367F7F6B630000L,   // U+0077 (w)
+        0x0063361C36630000L,   // U+0078 (x)
+        0x1F303E3333330000L,   // U+0079 (y)
+        0x003F260C193F0000L,   // U+007A (z)
+        0x00380C0C070C0C38L,   // U+007B ({)
+        0x0018181800181818L,   // U+007C (|)
+        0x00070C0C380C0C07L,   // U+007D (})
+        0x0000000000003B6EL,   // U+007E (~)
+        0x0000000000000000L    // U+007F
     };
 
+    private static final PackedFont defaultFont = new PackedFont();
+    static {
+        for (int i = 0; i < font.length; i++) defaultFont.put(i, font[i]);
+    }
+
+    // written under the driver lock together with orientedFont, read by getFont from any thread
+    private volatile PackedFont currentFont = defaultFont;
+    // font transformed for current orientation, rebuilt when it or orientation changes
+    private volatile PackedFont orientedFont;
 
     /**
      * Create and initialize LED matrix
@@ -156,14 +168,78 @@ public class LEDMatrix extends HC595Driver {
      */
     public LEDMatrix(@NonNull String RCLK_pin, @NonNull String SRCLK_pin, @NonNull String DI_pin) throws IOException {
         super(RCLK_pin, SRCLK_pin, DI_pin);
+        onOrientationChanged();
     }
 
     /**
-     * Display one ASCII character
-     * @param c character. Only first 128 ASCII chars supported
+     * Create and initialize LED matrix on given transport
+     * @param transport pin source
+     * @param RCLK_pin memory clock input(STCP)
+     * @param SRCLK_pin shift register clock input(SHCP)
+     * @param DI_pin serial data input
+     * @throws IOException
+     */
+    public LEDMatrix(@NonNull Transport transport, @NonNull String RCLK_pin, @NonNull String SRCLK_pin, @NonNull String DI_pin) throws IOException {
+        super(transport, RCLK_pin, SRCLK_pin, DI_pin);
+        onOrientationChanged();
+    }
+
+    /**
+     * Create and initialize LED matrix on given bus, e.g. {@link ShiftOutput#openSpi(Transport, String, String)}
+     * @param output bus of the matrix, closed by {@link #close()}
+     */
+    public LEDMatrix(@NonNull ShiftOutput output) {
+        super(output, 1);
+        onOrientationChanged();
+    }
+
+    /**
+     * Display one character of current font
+     * @param c character, missing ones are shown as font fallback glyph
      */
     public void display(char c) {
-        int [] data = font[(byte)c & 0x7f];
-        display(data);
+        displayCodePoint(c);
+    }
+
+    /**
+     * Display glyph of current font
+     * @param codePoint Unicode code point, missing ones are shown as font fallback glyph
+     */
+    public void displayCodePoint(int codePoint) {
+        displayOriented(orientedFont.get(codePoint));
+    }
+
+    /**
+     * Set font for {@link #display(char)}. Font is copied, later changes of it are not shown.
+     * @param font font, e.g. loaded with {@link PackedFont#loadPsf} or {@link PackedFont#loadBdf}
+     */
+    public synchronized void setFont(@NonNull PackedFont font) {
+        currentFont = font.copy();
+        onOrientationChanged();
+    }
+
+    public PackedFont getFont() { return currentFont.copy(); }
+
+    @Override
+    protected void onOrientationChanged() {
+        final PackedFont oriented = currentFont.copy();
+        for (int i = 0; i < oriented.getGlyphCount(); i++) oriented.setGlyphAt(i, orient(oriented.glyphAt(i)));
+        oriented.setFallback(orient(oriented.getFallback()));
+        orientedFont = oriented;
     }
+
+    /**
+     * @return new copy of built-in font: ASCII 0-127
+     */
+    public static PackedFont createDefaultFont() { return defaultFont.copy(); }
+
+    /**
+     * Built-in font glyph packed into a long, for drawing with {@link Bitboard}
+     * @param c character. Only first 128 ASCII chars supported, others are blank
+     */
+    public static long glyph(char c) {
+        return defaultFont.get(c);
+    }
+
+    static PackedFont defaultFont() { return defaultFont; }
 }
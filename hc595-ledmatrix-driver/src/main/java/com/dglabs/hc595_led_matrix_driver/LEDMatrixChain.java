@@ -0,0 +1,118 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.support.annotation.NonNull;
+
+import com.dglabs.pio_transport.PeripheralTransport;
+import com.dglabs.pio_transport.Transport;
+
+import java.io.IOException;
+
+/**
+ * Chain of 8*8 LED matrix modules shown as one 8N*8 framebuffer.
+ * Module 0 is connected to the controller and covers columns x 0-7, module 1 columns 8-15 etc.
+ * Draw into the framebuffer, then {@link #show()} it: all modules change at once.
+ * Drawing is not thread safe and does not allocate.
+ */
+public class LEDMatrixChain extends HC595Driver {
+
+    private final long [] framebuffer;
+
+    /**
+     * Create and initialize LED matrix chain
+     * @param RCLK_pin memory clock input(STCP)
+     * @param SRCLK_pin shift register clock input(SHCP)
+     * @param DI_pin serial data input of the first module
+     * @param moduleCount number of chained modules
+     * @throws IOException
+     */
+    public LEDMatrixChain(@NonNull String RCLK_pin, @NonNull String SRCLK_pin, @NonNull String DI_pin, int moduleCount) throws IOException {
+        this(new PeripheralTransport(), RCLK_pin, SRCLK_pin, DI_pin, moduleCount);
+    }
+
+    /**
+     * Create and initialize LED matrix chain on given transport
+     * @param transport pin source
+     * @param RCLK_pin memory clock input(STCP)
+     * @param SRCLK_pin shift register clock input(SHCP)
+     * @param DI_pin serial data input of the first module
+     * @param moduleCount number of chained modules
+     * @throws IOException
+     */
+    public LEDMatrixChain(@NonNull Transport transport, @NonNull String RCLK_pin, @NonNull String SRCLK_pin, @NonNull String DI_pin, int moduleCount) throws IOException {
+        super(transport, RCLK_pin, SRCLK_pin, DI_pin, moduleCount);
+        framebuffer = new long[moduleCount];
+    }
+
+    /**
+     * Create and initialize LED matrix chain on given bus, e.g. {@link ShiftOutput#openSpi(Transport, String, String)}
+     * @param output bus of the chain, closed by {@link #close()}
+     * @param moduleCount number of chained modules
+     */
+    public LEDMatrixChain(@NonNull ShiftOutput output, int moduleCount) {
+        super(output, moduleCount);
+        framebuffer = new long[moduleCount];
+    }
+
+    /**
+     * @return framebuffer width in pixels, 8 per module
+     */
+    public int getWidth() { return framebuffer.length * 8; }
+
+    /**
+     * Clear framebuffer, shown content does not change until {@link #show()}
+     */
+    public void clearBuffer() {
+        for (int m = 0; m < framebuffer.length; m++) framebuffer[m] = 0;
+    }
+
+    public void setPixel(int x, int y, boolean on) {
+        if (x < 0 || x >= getWidth()) return;
+        final long bit = Bitboard.pixel(x & 7, y);
+        framebuffer[x >> 3] = on ? framebuffer[x >> 3] | bit : framebuffer[x >> 3] & ~bit;
+    }
+
+    public boolean getPixel(int x, int y) {
+        if (x < 0 || x >= getWidth()) return false;
+        return Bitboard.get(framebuffer[x >> 3], x & 7, y);
+    }
+
+    /**
+     * OR 8*8 bitmap into the framebuffer, parts outside of it are clipped
+     * @param bitmap bitmap in {@link Bitboard} format
+     * @param x column of bitmap left edge, may span two modules
+     * @param y row of bitmap top edge
+     */
+    public void draw(long bitmap, int x, int y) {
+        final int first = Math.max(0, x >> 3);
+        final int last = Math.min(framebuffer.length - 1, (x + 7) >> 3);
+        for (int m = first; m <= last; m++) {
+            framebuffer[m] |= Bitboard.shift(bitmap, x - m * 8, y);
+        }
+    }
+
+    /**
+     * Draw string with LED matrix font, one module wide character cell per char
+     * @param text text, only first 128 ASCII chars supported
+     * @param x column of the first character left edge
+     */
+    public void drawString(@NonNull CharSequence text, int x) {
+        for (int i = 0; i < text.length() && x < getWidth(); i++, x += 8) {
+            if (x > -8) draw(LEDMatrix.glyph(text.charAt(i)), x, 0);
+        }
+    }
+
+    /**
+     * @param module module number
+     * @return framebuffer part of the module
+     */
+    public long getBuffer(int module) { return framebuffer[module]; }
+
+    public void setBuffer(int module, long bitmap) { framebuffer[module] = bitmap; }
+
+    /**
+     * Show framebuffer on all modules at once
+     */
+    public void show() {
+        display(framebuffer);
+    }
+}
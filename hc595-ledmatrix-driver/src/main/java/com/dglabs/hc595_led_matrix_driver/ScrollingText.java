@@ -0,0 +1,140 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.support.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Marquee text on LED matrix or chain of them. Text enters from the right edge and leaves at the left one,
+ * one column per {@link #step()}.
+ * Texts are prerendered into {@link TextStrip}s kept in a bounded LRU cache, so showing a repeated
+ * message again does not lay it out again. Stepping does not allocate. Not thread safe.
+ */
+public class ScrollingText {
+    /**
+     * default number of cached strips
+     */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    private final HC595Driver display;
+    private final long [] frames;
+    private final int viewWidth;
+
+    private PackedFont font = LEDMatrix.defaultFont();
+    private boolean variableWidth = true;
+    private int spacing = 1;
+    private boolean kerning = true;
+
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+    private final LinkedHashMap<String, TextStrip> cache = new LinkedHashMap<String, TextStrip>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TextStrip> eldest) {
+            return size() > cacheSize;
+        }
+    };
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
+
+    private TextStrip strip = null;
+    private int offset = 0;
+
+    /**
+     * @param display LED matrix or chain, module 0 is the leftmost
+     */
+    public ScrollingText(@NonNull HC595Driver display) {
+        this.display = display;
+        this.frames = new long[display.getModuleCount()];
+        this.viewWidth = frames.length * 8;
+    }
+
+    /**
+     * Set glyph layout. Cached strips are dropped.
+     * @param variableWidth trim blank columns around glyphs, true by default
+     * @param spacing blank columns between glyphs, 1 by default
+     * @param kerning drop one spacing column where glyphs do not touch, true by default
+     */
+    public void setLayout(boolean variableWidth, int spacing, boolean kerning) {
+        if (spacing < 0) throw new IllegalArgumentException("spacing should not be negative");
+        this.variableWidth = variableWidth;
+        this.spacing = spacing;
+        this.kerning = kerning;
+        cache.clear();
+    }
+
+    /**
+     * Set font for new texts. Font is copied, cached strips are dropped.
+     * @param font font, built-in ASCII one by default
+     */
+    public void setFont(@NonNull PackedFont font) {
+        this.font = font.copy();
+        cache.clear();
+    }
+
+    /**
+     * @param size maximal number of cached strips, 0 disables caching
+     */
+    public void setCacheSize(int size) {
+        if (size < 0) throw new IllegalArgumentException("size should not be negative");
+        cacheSize = size;
+        while (cache.size() > cacheSize) {
+            cache.remove(cache.keySet().iterator().next());
+        }
+    }
+
+    public int getCacheSize() { return cacheSize; }
+
+    public long getCacheHits() { return cacheHits; }
+
+    public long getCacheMisses() { return cacheMisses; }
+
+    /**
+     * Get prerendered strip of the text with current layout
+     * @param text text
+     * @return cached or newly rendered strip
+     */
+    public TextStrip getStrip(@NonNull CharSequence text) {
+        final String key = text.toString();
+        TextStrip result = cache.get(key);
+        if (result != null) {
+            cacheHits++;
+            return result;
+        }
+        cacheMisses++;
+        result = TextStrip.render(key, font, variableWidth, spacing, kerning);
+        if (cacheSize > 0) cache.put(key, result);
+        return result;
+    }
+
+    /**
+     * Start scrolling new text from the right edge. Display is not changed until {@link #step()}.
+     * @param text text
+     */
+    public void setText(@NonNull CharSequence text) {
+        strip = getStrip(text);
+        offset = -viewWidth;
+    }
+
+    /**
+     * @return first strip column shown on the left edge, negative while text enters
+     */
+    public int getOffset() { return offset; }
+
+    public void setOffset(int offset) { this.offset = offset; }
+
+    /**
+     * Show current position and move text one column to the left.
+     * Text starts again from the right edge after it has left the display.
+     * @return true if the text has left the display and starts again
+     */
+    public boolean step() {
+        if (strip == null) return false;
+        for (int m = 0; m < frames.length; m++) frames[m] = strip.window(offset + m * 8);
+        display.display(frames);
+        if (++offset > strip.getWidth()) {
+            offset = -viewWidth;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,113 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.support.annotation.NonNull;
+
+import com.dglabs.pio_transport.Pin;
+import com.dglabs.pio_transport.SpiBus;
+import com.dglabs.pio_transport.Transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Bus used by {@link HC595Driver} to shift bytes into 74HC595 chain and latch them.
+ * Use {@link #openGpio(Transport, String, String, String)} to bit-bang RCLK/SRCLK/DI pins or
+ * {@link #openSpi(Transport, String, String)} to send every row in one SPI transfer.
+ */
+public abstract class ShiftOutput implements Closeable {
+
+    /**
+     * Open RCLK, SRCLK and DI pins and bit-bang bytes over them
+     * @param transport pin source
+     * @param RCLK_pin memory clock input(STCP)
+     * @param SRCLK_pin shift register clock input(SHCP)
+     * @param DI_pin serial data input
+     * @return output owning the pins
+     * @throws IOException
+     */
+    public static ShiftOutput openGpio(@NonNull Transport transport, @NonNull String RCLK_pin, @NonNull String SRCLK_pin, @NonNull String DI_pin) throws IOException {
+        final Pin [] pins = new Pin[3];
+        final String [] names = {RCLK_pin, SRCLK_pin, DI_pin};
+        try {
+            for (int i = 0; i < pins.length; i++) {
+                pins[i] = transport.openPin(names[i]);
+                pins[i].setDirection(Pin.DIRECTION_OUT_INITIALLY_LOW);
+            }
+        }
+        catch (IOException ex) {
+            for (Pin pin : pins) if (pin != null) pin.close();
+            throw ex;
+        }
+        return new GpioShiftOutput(pins[0], pins[1], pins[2]);
+    }
+
+    /**
+     * Open SPI device: MOSI drives DI, SCLK drives SRCLK, mode 0, MSB first.
+     * Bytes of a row are sent with one SPI write, then RCLK is pulsed on a GPIO.
+     * @param transport bus source
+     * @param spiDeviceName SPI device, e.g. "SPI0.0"
+     * @param RCLK_pin memory clock input(STCP)
+     * @return output owning the SPI device and RCLK pin
+     * @throws IOException
+     */
+    public static ShiftOutput openSpi(@NonNull Transport transport, @NonNull String spiDeviceName, @NonNull String RCLK_pin) throws IOException {
+        final SpiBus spi = openSpiBus(transport, spiDeviceName);
+        final Pin latch;
+        try {
+            latch = transport.openPin(RCLK_pin);
+        }
+        catch (IOException ex) {
+            spi.close();
+            throw ex;
+        }
+        try {
+            latch.setDirection(Pin.DIRECTION_OUT_INITIALLY_LOW);
+        }
+        catch (IOException ex) {
+            spi.close();
+            latch.close();
+            throw ex;
+        }
+        return new SpiShiftOutput(spi, latch);
+    }
+
+    /**
+     * Open SPI device with chip select wired to RCLK: the rising CS edge at the end of every
+     * transfer latches the row, no GPIO call is needed.
+     * @param transport bus source
+     * @param spiDeviceName SPI device, e.g. "SPI0.0"
+     * @return output owning the SPI device
+     * @throws IOException
+     */
+    public static ShiftOutput openSpi(@NonNull Transport transport, @NonNull String spiDeviceName) throws IOException {
+        return new SpiShiftOutput(openSpiBus(transport, spiDeviceName), null);
+    }
+
+    private static SpiBus openSpiBus(Transport transport, String spiDeviceName) throws IOException {
+        final SpiBus spi = transport.openSpiBus(spiDeviceName);
+        try {
+            spi.setMode(SpiBus.MODE0);
+            spi.setFrequency(SpiShiftOutput.DEFAULT_FREQUENCY);
+            spi.setBitsPerWord(8);
+            spi.setBitJustification(false); // MSB first
+        }
+        catch (IOException ex) {
+            spi.close();
+            throw ex;
+        }
+        return spi;
+    }
+
+    /**
+     * Shift 8 bits MSB first, may be buffered until {@link #latch()}
+     * @param b byte
+     * @throws IOException
+     */
+    abstract void writeByte(int b) throws IOException;
+
+    /**
+     * Send buffered bytes and copy shift registers to outputs
+     * @throws IOException
+     */
+    abstract void latch() throws IOException;
+}
@@ -0,0 +1,113 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Text prerendered into a strip of 8 pixel high columns.
+ * Columns are packed 8 per long: column c is byte c%8 of long c/8, bit y of the byte is row y.
+ * Any 8 column window is extracted with two shifts and a {@link Bitboard#transpose(long)}.
+ */
+public class TextStrip {
+    /**
+     * width of a blank glyph (space) in variable width mode
+     */
+    public static final int SPACE_WIDTH = 3;
+
+    private final long [] columns;
+    private final int width;
+
+    private TextStrip(long [] columns, int width) {
+        this.columns = columns;
+        this.width = width;
+    }
+
+    /**
+     * @return strip width in columns
+     */
+    public int getWidth() { return width; }
+
+    /**
+     * @param column column number
+     * @return column pixels, bit y is row y. 0 outside of the strip.
+     */
+    public int getColumn(int column) {
+        if (column < 0 || column >= width) return 0;
+        return (int)(columns[column >> 3] >>> ((column & 7) * 8)) & 0xFF;
+    }
+
+    /**
+     * Extract 8 columns as a frame. Does not allocate.
+     * @param offset first column, may be negative or past the end: missing columns are blank
+     * @return frame in {@link Bitboard} format
+     */
+    public long window(int offset) {
+        final int word = offset >> 3;
+        final int shift = (offset & 7) * 8;
+        long packed = word(word);
+        if (shift != 0) packed = (packed >>> shift) | (word(word + 1) << (64 - shift));
+        return Bitboard.transpose(packed);
+    }
+
+    private long word(int index) {
+        return index >= 0 && index < columns.length ? columns[index] : 0;
+    }
+
+    /**
+     * Render text with built-in LED matrix font
+     * @param text text, only first 128 ASCII chars supported
+     * @param variableWidth trim blank columns around glyphs, otherwise every glyph is 8 columns wide
+     * @param spacing blank columns between glyphs
+     * @param kerning drop one spacing column between glyphs whose facing columns do not touch
+     * @return rendered strip
+     */
+    public static TextStrip render(@NonNull CharSequence text, boolean variableWidth, int spacing, boolean kerning) {
+        return render(text, LEDMatrix.defaultFont(), variableWidth, spacing, kerning);
+    }
+
+    /**
+     * Render text
+     * @param text text, code points missing in the font are shown as its fallback glyph
+     * @param font font
+     * @param variableWidth trim blank columns around glyphs, otherwise every glyph is 8 columns wide
+     * @param spacing blank columns between glyphs
+     * @param kerning drop one spacing column between glyphs whose facing columns do not touch
+     * @return rendered strip
+     */
+    public static TextStrip render(@NonNull CharSequence text, @NonNull PackedFont font, boolean variableWidth, int spacing, boolean kerning) {
+        if (spacing < 0) throw new IllegalArgumentException("spacing should not be negative");
+        long [] columns = new long[Math.max(1, text.length())];
+        int width = 0;
+        int lastColumn = 0;
+        for (int i = 0; i < text.length(); i += Character.charCount(Character.codePointAt(text, i))) {
+            // byte x of transposed glyph is its column x
+            final long glyph = Bitboard.transpose(font.get(Character.codePointAt(text, i)));
+            int first = 0, last = 7;
+            if (variableWidth) {
+                if (glyph == 0) {
+                    last = SPACE_WIDTH - 1;
+                }
+                else {
+                    while (((glyph >>> (first * 8)) & 0xFF) == 0) first++;
+                    while (((glyph >>> (last * 8)) & 0xFF) == 0) last--;
+                }
+            }
+            if (i > 0) {
+                int gap = spacing;
+                final int firstColumn = (int)(glyph >>> (first * 8)) & 0xFF;
+                if (kerning && gap > 0 && (lastColumn & (firstColumn | firstColumn << 1 | firstColumn >> 1)) == 0) gap--;
+                width += gap;
+            }
+            final int needed = ((width + last - first + 1) >> 3) + 1;
+            if (needed > columns.length) {
+                final long [] larger = new long[Math.max(needed, columns.length * 2)];
+                System.arraycopy(columns, 0, larger, 0, columns.length);
+                columns = larger;
+            }
+            for (int x = first; x <= last; x++, width++) {
+                columns[width >> 3] |= ((glyph >>> (x * 8)) & 0xFF) << ((width & 7) * 8);
+            }
+            lastColumn = (int)(glyph >>> (last * 8)) & 0xFF;
+        }
+        return new TextStrip(columns, width);
+    }
+}
@@ -0,0 +1,188 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class PackedFontTest {
+
+    private static final int PSF1_MODE512 = 0x01;
+    private static final int PSF1_MODEHASTAB = 0x02;
+
+    private static void uint16(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >> 8);
+    }
+
+    private static void uint32(ByteArrayOutputStream out, int value) {
+        uint16(out, value);
+        uint16(out, value >>> 16);
+    }
+
+    private static void bytes(ByteArrayOutputStream out, int... values) {
+        for (int b : values) out.write(b);
+    }
+
+    /**
+     * PSF1 font of given height, glyph i has its first row set to i & 0xFF
+     */
+    private static ByteArrayOutputStream psf1(int mode, int height) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        uint16(out, 0x0436);
+        bytes(out, mode, height);
+        final int length = (mode & PSF1_MODE512) != 0 ? 512 : 256;
+        for (int i = 0; i < length; i++) {
+            out.write(i);
+            for (int y = 1; y < height; y++) out.write(0);
+        }
+        return out;
+    }
+
+    // first glyph row as written by psf1(): leftmost pixel is the most significant bit
+    private static long firstRow(int b) {
+        return Integer.reverse(b & 0xFF) >>> 24;
+    }
+
+    @Test
+    public void psf1_usesGlyphNumbersWithoutTable() throws Exception {
+        final PackedFont font = PackedFont.loadPsf(new ByteArrayInputStream(psf1(0, 8).toByteArray()));
+        assertEquals(256, font.getGlyphCount());
+        assertEquals(Bitboard.pixel(0, 0), font.get(0x80));
+        assertEquals(firstRow('A'), font.get('A'));
+        assertFalse(font.contains(256));
+    }
+
+    @Test
+    public void psf1_mapsUnicodeTableAndSkipsSequences() throws Exception {
+        final ByteArrayOutputStream out = psf1(PSF1_MODE512 | PSF1_MODEHASTAB, 6);
+        // glyph 0: A and Greek Alpha
+        uint16(out, 0x0041); uint16(out, 0x0391); uint16(out, 0xFFFF);
+        // glyph 1: precomposed A with ring, then a combining sequence for it
+        uint16(out, 0x00C5); uint16(out, 0xFFFE); uint16(out, 0x0041); uint16(out, 0x030A); uint16(out, 0xFFFF);
+        for (int i = 2; i < 511; i++) uint16(out, 0xFFFF);
+        // glyph 511: Cyrillic Zhe
+        uint16(out, 0x0416); uint16(out, 0xFFFF);
+        final PackedFont font = PackedFont.loadPsf(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(4, font.getGlyphCount());
+        assertEquals(firstRow(0), font.get(0x41));
+        assertEquals(firstRow(0), font.get(0x391));
+        assertEquals(firstRow(1), font.get(0xC5));
+        assertEquals(firstRow(511), font.get(0x416));
+        assertFalse(font.contains(0x30A));
+    }
+
+    @Test
+    public void psf2_readsPaddedGlyphsAndUtf8Table() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        uint32(out, 0x864AB572);
+        // version, header size with 4 extra bytes, flags, length, char size with 3 padding bytes, height, width
+        uint32(out, 0); uint32(out, 36); uint32(out, 1); uint32(out, 3); uint32(out, 10); uint32(out, 7); uint32(out, 5);
+        uint32(out, 0xDEADBEEF);
+        for (int i = 0; i < 3; i++) {
+            // rows 0 and 6 of 5 pixel wide glyph, padding is not part of the glyph
+            bytes(out, 0xF8, i, 0, 0, 0, 0, 0xF8, 0xFF, 0xFF, 0xFF);
+        }
+        // glyph 0: A
+        bytes(out, 0x41, 0xFF);
+        // glyph 1: Cyrillic Zhe (2 bytes), sequence e + combining acute is skipped
+        bytes(out, 0xD0, 0x96, 0xFE, 0x65, 0xCC, 0x81, 0xFF);
+        // glyph 2: Euro sign (3 bytes)
+        bytes(out, 0xE2, 0x82, 0xAC, 0xFF);
+        final PackedFont font = PackedFont.loadPsf(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(3, font.getGlyphCount());
+        final long frame = Bitboard.fillRect(0, 0, 5, 1) | Bitboard.fillRect(0, 6, 5, 1);
+        assertEquals(frame, font.get('A'));
+        assertEquals(frame | firstRow(1) << 8, font.get(0x416));
+        assertEquals(frame | firstRow(2) << 8, font.get(0x20AC));
+        assertFalse(font.contains('e'));
+        assertFalse(font.contains(0x301));
+    }
+
+    @Test(expected = IOException.class)
+    public void psf_rejectsUnknownMagic() throws Exception {
+        PackedFont.loadPsf(new ByteArrayInputStream(new byte[] {'B', 'D', 'F', ' ', 0, 0}));
+    }
+
+    @Test(expected = IOException.class)
+    public void psf_rejectsGlyphsTallerThan8() throws Exception {
+        PackedFont.loadPsf(new ByteArrayInputStream(psf1(0, 16).toByteArray()));
+    }
+
+    @Test
+    public void bdf_placesGlyphsByBoundingBoxes() throws Exception {
+        final String bdf = "STARTFONT 2.1\n"
+                + "FONT -test-tiny\n"
+                // 2 rows below baseline
+                + "FONTBOUNDINGBOX 6 8 0 -2\n"
+                + "CHARS 3\n"
+                + "STARTCHAR A\nENCODING 65\nBBX 5 6 0 0\nBITMAP\nF8\nF8\nF8\nF8\nF8\nF8\nENDCHAR\n"
+                // descender reaches the bottom row
+                + "STARTCHAR g\nENCODING 103\nBBX 4 5 1 -2\nBITMAP\n70\n90\n70\n10\nE0\nENDCHAR\n"
+                + "STARTCHAR unmapped\nENCODING -1\nBBX 1 1 0 0\nBITMAP\n80\nENDCHAR\n"
+                + "ENDFONT\n";
+        final PackedFont font = PackedFont.loadBdf(new StringReader(bdf));
+        assertEquals(2, font.getGlyphCount());
+        assertEquals(Bitboard.fillRect(0, 0, 5, 6), font.get('A'));
+        final long g = Bitboard.fillRect(2, 3, 3, 1)
+                | Bitboard.pixel(1, 4) | Bitboard.pixel(4, 4)
+                | Bitboard.fillRect(2, 5, 3, 1)
+                | Bitboard.pixel(4, 6)
+                | Bitboard.fillRect(1, 7, 3, 1);
+        assertEquals(g, font.get('g'));
+    }
+
+    @Test(expected = IOException.class)
+    public void bdf_rejectsInvalidNumbers() throws Exception {
+        PackedFont.loadBdf(new StringReader("FONTBOUNDINGBOX 8 8 0 0\nSTARTCHAR A\nENCODING 65\nBBX 4 x 0 0\n"));
+    }
+
+    @Test(expected = IOException.class)
+    public void bdf_rejectsFontsLargerThan8x8() throws Exception {
+        PackedFont.loadBdf(new StringReader("FONTBOUNDINGBOX 9 8 0 0\n"));
+    }
+
+    @Test
+    public void copy_isIndependent() throws Exception {
+        final PackedFont font = new PackedFont();
+        font.put(0x1F600, Bitboard.FULL);
+        font.setFallback(Bitboard.pixel(3, 3));
+        final PackedFont copy = font.copy();
+        copy.put(0x1F600, Bitboard.EMPTY);
+        copy.put('A', Bitboard.FULL);
+        assertEquals(Bitboard.FULL, font.get(0x1F600));
+        assertEquals(Bitboard.pixel(3, 3), font.get('A'));
+        assertEquals(Bitboard.EMPTY, copy.get(0x1F600));
+        assertEquals(2, copy.getGlyphCount());
+    }
+
+    @Test
+    public void ledMatrix_showsGlyphOfSetFont() throws Exception {
+        final LEDMatrix matrix = new LEDMatrix(new SimulatedTransport(16), "RCLK", "SRCLK", "DI");
+        try {
+            final PackedFont font = new PackedFont();
+            final long zhe = Bitboard.line(Bitboard.line(Bitboard.EMPTY, 0, 0, 7, 7), 7, 0, 0, 7);
+            font.put(0x416, zhe);
+            matrix.setFont(font);
+            // font is copied
+            font.put(0x416, Bitboard.FULL);
+            matrix.displayCodePoint(0x416);
+            assertEquals(zhe, matrix.getFrame());
+            matrix.setRotation(90);
+            matrix.setFlipHorizontal(true);
+            matrix.displayCodePoint(0x416);
+            assertEquals(zhe, matrix.getFrame());
+            matrix.display('A');
+            assertEquals(Bitboard.EMPTY, matrix.getFrame());
+        }
+        finally {
+            matrix.close();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RefreshStatsTest {
+
+    @Test
+    public void percentile_isBucketLimit() throws Exception {
+        final long [] rows = new long[RefreshStats.BUCKET_COUNT];
+        rows[RefreshStats.bucketOf(1500)] = 99;
+        rows[RefreshStats.bucketOf(40000)] = 1;
+        final RefreshStats stats = new RefreshStats(rows, new long[RefreshStats.BUCKET_COUNT], 40000, 0, 0, 0, 0, 0);
+        assertEquals(2048, stats.getRowPercentileNanos(50));
+        assertEquals(65536, stats.getRowPercentileNanos(100));
+        assertEquals(0, stats.getFramePercentileNanos(50));
+    }
+
+    @Test
+    public void percentile_ofLastBucketIsObservedMax() throws Exception {
+        final long [] frames = new long[RefreshStats.BUCKET_COUNT];
+        final long stall = 5000000000L;
+        frames[RefreshStats.bucketOf(stall)] = 1;
+        assertEquals(RefreshStats.BUCKET_COUNT - 1, RefreshStats.bucketOf(stall));
+        final RefreshStats stats = new RefreshStats(new long[RefreshStats.BUCKET_COUNT], frames, 0, stall, 0, 0, 0, 0);
+        assertEquals(stall, stats.getFramePercentileNanos(99));
+        assertTrue(stats.toString(), stats.toString().contains("frame p50<=5000000us p99<=5000000us"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.dglabs.hc595_led_matrix_driver;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScrollingTextTest {
+
+    private HC595Driver display;
+    private ScrollingText text;
+
+    @Before
+    public void setUp() throws Exception {
+        display = new HC595Driver(new SimulatedTransport(16), "RCLK", "SRCLK", "DI", 2);
+        text = new ScrollingText(display);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        display.close();
+    }
+
+    @Test
+    public void getStrip_evictsLeastRecentlyUsed() throws Exception {
+        text.setCacheSize(2);
+        final TextStrip a = text.getStrip("A");
+        final TextStrip b = text.getStrip("B");
+        assertSame(a, text.getStrip("A"));
+        // B is the eldest now
+        text.getStrip("C");
+        assertSame(a, text.getStrip(new StringBuilder("A")));
+        assertNotSame(b, text.getStrip("B"));
+        assertEquals(2, text.getCacheHits());
+        assertEquals(4, text.getCacheMisses());
+    }
+
+    @Test
+    public void setLayout_dropsCachedStrips() throws Exception {
+        final TextStrip strip = text.getStrip("A");
+        text.setLayout(false, 0, false);
+        final TextStrip fixed = text.getStrip("A");
+        assertNotSame(strip, fixed);
+        assertEquals(8, fixed.getWidth());
+    }
+
+    @Test
+    public void cacheSize_zeroRendersEveryTime() throws Exception {
+        text.getStrip("A");
+        text.setCacheSize(0);
+        assertNotSame(text.getStrip("A"), text.getStrip("A"));
+        assertEquals(0, text.getCacheHits());
+        assertEquals(3, text.getCacheMisses());
+    }
+
+    @Test
+    public void step_scrollsTextThroughView() throws Exception {
+        assertFalse(text.step());
+        text.setText("HI");
+        final TextStrip strip = text.getStrip("HI");
+        assertEquals(-16, text.getOffset());
+        int steps = 0;
+        while (text.getOffset() < 0) {
+            assertFalse(text.step());
+            steps++;
+        }
+        assertEquals(16, steps);
+        // text has entered the view completely
+        assertFalse(text.step());
+        steps++;
+        assertEquals(strip.window(0), display.getFrame(0));
+        assertEquals(strip.window(8), display.getFrame(1));
+        do steps++; while (!text.step());
+        // every offset from -16 to the strip width is shown once
+        assertEquals(16 + strip.getWidth() + 1, steps);
+        assertEquals(-16, text.getOffset());
+    }
+}
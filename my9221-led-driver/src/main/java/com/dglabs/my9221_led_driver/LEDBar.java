@@ -2,6 +2,8 @@ package com.dglabs.my9221_led_driver;
 
 import android.support.annotation.NonNull;
 
+import com.dglabs.pio_transport.Transport;
+
 import java.io.IOException;
 
 /**
@@ -9,11 +11,12 @@ import java.io.IOException;
  */
 
 /**
- *
+ * LED bar on MY9221. Several bars daisy-chained on one DI/DCLK pair are shown as one long bar.
  */
 public class LEDBar extends MY9221LEDDriver {
 
     private int ledCount = 10;
+    private int [] levels;
 
     /**
      * Create and initialize LED Bar object.
@@ -24,11 +27,63 @@ public class LEDBar extends MY9221LEDDriver {
      */
     public LEDBar(@NonNull String DI_pin_name, @NonNull String DCLK_pin_name, int ledCount) throws IOException {
         super(DI_pin_name, DCLK_pin_name);
+        setLedCount(ledCount);
+    }
+
+    /**
+     * Create and initialize LED Bar object on given transport.
+     * @param transport pin source
+     * @param DI_pin_name DI inpit pin
+     * @param DCLK_pin_name DCLK input pin
+     * @param ledCount Number of LEDs on this bar (1-12). If 0, then 10 LEDs assumed.
+     * @throws IOException
+     */
+    public LEDBar(@NonNull Transport transport, @NonNull String DI_pin_name, @NonNull String DCLK_pin_name, int ledCount) throws IOException {
+        super(transport, DI_pin_name, DCLK_pin_name);
+        setLedCount(ledCount);
+    }
+
+    /**
+     * Create and initialize chain of LED Bars on given transport. Bars are addressed as one long bar,
+     * LED 0 is the first LED of the bar connected to the pins.
+     * @param transport pin source
+     * @param DI_pin_name DI inpit pin of the first bar
+     * @param DCLK_pin_name DCLK input pin of the first bar
+     * @param ledCount Number of LEDs on each bar (1-12). If 0, then 10 LEDs assumed.
+     * @param barCount Number of daisy-chained bars
+     * @throws IOException
+     */
+    public LEDBar(@NonNull Transport transport, @NonNull String DI_pin_name, @NonNull String DCLK_pin_name, int ledCount, int barCount) throws IOException {
+        super(transport, DI_pin_name, DCLK_pin_name, barCount);
+        setLedCount(ledCount);
+    }
+
+    /**
+     * Create and initialize chain of LED Bars on given bus, e.g. {@link MY9221FrameEncoder#openSpi}
+     * @param encoder GPIO or SPI bus, owned and closed by the bar
+     * @param ledCount Number of LEDs on each bar (1-12). If 0, then 10 LEDs assumed.
+     * @param barCount Number of daisy-chained bars
+     */
+    public LEDBar(@NonNull MY9221FrameEncoder encoder, int ledCount, int barCount) {
+        super(encoder, barCount);
+        setLedCount(ledCount);
+    }
+
+    private void setLedCount(int ledCount) {
         if (ledCount > 12) throw new IllegalArgumentException("ledCount should be 1-12");
         if (ledCount > 0) this.ledCount = ledCount;
+        levels = new int[CHANNEL_COUNT * getChipCount()];
     }
 
-    public int getLedCount() { return ledCount; }
+    /**
+     * @return total number of LEDs on all chained bars
+     */
+    public int getLedCount() { return ledCount * getChipCount(); }
+
+    /**
+     * @return number of LEDs on each bar
+     */
+    public int getLedsPerBar() { return ledCount; }
 
     /**
      * Highlight value LEDs on the led bar
@@ -38,11 +93,31 @@ public class LEDBar extends MY9221LEDDriver {
      * @throws IllegalArgumentException
      */
     public void write(int value, int brightness) throws IOException, IllegalArgumentException {
-        if (value > getLedCount()) throw new IllegalArgumentException("value should be in range 1-" + getLedCount());
-        int mask = 0;
-        for (int i = 0; i < value; i++) {
-            mask <<= 1; mask |= 1;
+        write(value, 0, brightness);
+    }
+
+    /**
+     * Highlight value LEDs on the led bar plus a single peak marker LED
+     * @param value number of LEDs to highlight 0 - ledCount
+     * @param peak position of the peak marker 1 - ledCount, 0 for no marker
+     * @param brightness bar brightness value (1-255)
+     * @throws IOException
+     * @throws IllegalArgumentException
+     */
+    public void write(int value, int peak, int brightness) throws IOException, IllegalArgumentException {
+        if (value < 0 || value > getLedCount()) throw new IllegalArgumentException("value should be in range 1-" + getLedCount());
+        if (peak < 0 || peak > getLedCount()) throw new IllegalArgumentException("peak should be in range 1-" + getLedCount());
+        checkBrightness(brightness);
+        if (getChipCount() == 1) {
+            lowWrite(((1 << value) - 1) | (peak > 0 ? 1 << (peak - 1) : 0), brightness);
+            return;
         }
-        lowWrite(mask, brightness);
+        if (brightness == 0) brightness = BRIGHTNESS_MIN;
+        for (int i = 0; i < levels.length; i++) levels[i] = 0;
+        for (int i = 0; i < value; i++)
+            levels[(i / ledCount) * CHANNEL_COUNT + (i % ledCount)] = brightness;
+        if (peak > 0)
+            levels[((peak - 1) / ledCount) * CHANNEL_COUNT + ((peak - 1) % ledCount)] = brightness;
+        write(levels);
     }
 }
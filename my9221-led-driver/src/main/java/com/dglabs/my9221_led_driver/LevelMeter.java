@@ -0,0 +1,143 @@
+package com.dglabs.my9221_led_driver;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Level meter rendered on {@link LEDBar} from a high rate sample stream (audio, vibration etc.).
+ * Samples are decimated to the display rate by taking the peak absolute value of every window.
+ * Shown level rises immediately and falls with configured decay, a peak marker LED is held for
+ * configured time and then decays too. Bar is written only when rendered LEDs change.
+ * Sample processing does not allocate.
+ */
+public class LevelMeter {
+
+    private final LEDBar bar;
+    private final int samplesPerFrame;
+    private final int displayRate;
+
+    private float decayPerFrame;
+    private int holdFrames;
+    private int brightness = LEDBar.BRIGHTNESS_MED;
+
+    private float windowPeak = 0;
+    private int windowSamples = 0;
+    private float level = 0;
+    private float peak = 0;
+    private int peakAge = 0;
+    private int shownValue = -1;
+    private int shownPeak = -1;
+    private long frames = 0;
+    private long emittedFrames = 0;
+
+    /**
+     * Create level meter with 1.5 full scales per second decay and 500ms peak hold
+     * @param bar LED bar to render to
+     * @param sampleRate rate of incoming samples, Hz
+     * @param displayRate rate of rendered frames, Hz, not higher than sample rate
+     */
+    public LevelMeter(@NonNull LEDBar bar, int sampleRate, int displayRate) {
+        if (displayRate <= 0 || sampleRate < displayRate) throw new IllegalArgumentException("displayRate should be in range 1-" + sampleRate);
+        this.bar = bar;
+        this.displayRate = displayRate;
+        this.samplesPerFrame = sampleRate / displayRate;
+        setDecay(1.5f);
+        setPeakHold(500);
+    }
+
+    /**
+     * @param fullScalesPerSecond how fast shown level and released peak fall, in full scales per second
+     */
+    public void setDecay(float fullScalesPerSecond) {
+        if (!(fullScalesPerSecond > 0)) throw new IllegalArgumentException("decay should be positive");
+        decayPerFrame = fullScalesPerSecond / displayRate;
+    }
+
+    /**
+     * @param holdMillis how long peak marker stays before it starts to fall. 0 disables peak marker.
+     */
+    public void setPeakHold(int holdMillis) {
+        if (holdMillis < 0) throw new IllegalArgumentException("holdMillis should not be negative");
+        holdFrames = (int)((long)holdMillis * displayRate / 1000);
+    }
+
+    /**
+     * @param brightness bar brightness value (1-255)
+     */
+    public void setBrightness(int brightness) {
+        MY9221LEDDriver.checkBrightness(brightness);
+        this.brightness = brightness;
+        shownValue = shownPeak = -1;
+    }
+
+    /**
+     * @return number of rendered frames
+     */
+    public long getFrameCount() { return frames; }
+
+    /**
+     * @return number of frames actually written to the bar
+     */
+    public long getEmittedFrameCount() { return emittedFrames; }
+
+    /**
+     * @return current shown level 0.0 - 1.0
+     */
+    public float getLevel() { return level; }
+
+    /**
+     * Feed samples with full scale 1.0
+     * @throws IOException
+     */
+    public void process(@NonNull float [] samples, int offset, int length) throws IOException {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            final float v = samples[i];
+            addSample(v < 0 ? -v : v);
+        }
+    }
+
+    /**
+     * Feed 16-bit PCM samples
+     * @throws IOException
+     */
+    public void process(@NonNull short [] samples, int offset, int length) throws IOException {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            final int v = samples[i];
+            addSample((v < 0 ? -v : v) / 32768f);
+        }
+    }
+
+    private void addSample(float v) throws IOException {
+        if (v > windowPeak) windowPeak = v;
+        if (++windowSamples >= samplesPerFrame) {
+            renderFrame(windowPeak > 1 ? 1 : windowPeak);
+            windowPeak = 0;
+            windowSamples = 0;
+        }
+    }
+
+    private void renderFrame(float input) throws IOException {
+        frames++;
+        level = input > level ? input : Math.max(input, level - decayPerFrame);
+
+        if (level >= peak) {
+            peak = level;
+            peakAge = 0;
+        }
+        else if (++peakAge > holdFrames) {
+            peak = Math.max(level, peak - decayPerFrame);
+        }
+
+        final int ledCount = bar.getLedCount();
+        final int value = Math.round(level * ledCount);
+        final int peakLed = holdFrames > 0 ? Math.round(peak * ledCount) : 0;
+        final int marker = peakLed > value ? peakLed : 0;
+        if (value == shownValue && marker == shownPeak) return;
+
+        bar.write(value, marker, brightness);
+        shownValue = value;
+        shownPeak = marker;
+        emittedFrames++;
+    }
+}
@@ -0,0 +1,130 @@
+package com.dglabs.my9221_led_driver;
+
+import android.support.annotation.NonNull;
+
+import com.dglabs.pio_transport.Pin;
+import com.dglabs.pio_transport.SpiBus;
+import com.dglabs.pio_transport.Transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Bus used by {@link MY9221LEDDriver} to shift and latch frames.
+ * Use {@link #openGpio(Transport, String, String)} to bit-bang DI/DCLK pins or
+ * {@link #openSpi(Transport, String, String)} to send whole frame in one SPI transfer.
+ */
+public abstract class MY9221FrameEncoder implements Closeable {
+
+    /**
+     * Open DI and DCLK pins and bit-bang frames over them
+     * @param transport pin source
+     * @param DI_pin_name DI data input
+     * @param DCLK_pin_name DCLK clock input
+     * @return encoder owning the pins
+     * @throws IOException
+     */
+    public static MY9221FrameEncoder openGpio(@NonNull Transport transport, @NonNull String DI_pin_name, @NonNull String DCLK_pin_name) throws IOException {
+        final Pin DI = transport.openPin(DI_pin_name);
+        final Pin DCLK;
+        try {
+            DI.setDirection(Pin.DIRECTION_OUT_INITIALLY_LOW);
+            DCLK = transport.openPin(DCLK_pin_name);
+        }
+        catch (IOException ex) {
+            DI.close();
+            throw ex;
+        }
+        try {
+            DCLK.setDirection(Pin.DIRECTION_OUT_INITIALLY_LOW);
+        }
+        catch (IOException ex) {
+            DI.close();
+            DCLK.close();
+            throw ex;
+        }
+        return new GpioFrameEncoder(DI, DCLK);
+    }
+
+    /**
+     * Open SPI device and send frames with one SPI write. MOSI drives DI, SCLK drives DCLK.
+     * Latch pulses can not be produced by SPI controller, so they are sent on a GPIO which is OR-ed
+     * with MOSI onto DI, so MOSI must idle low between transfers.
+     * MY9221 samples DI on both DCLK edges, so DI has to stay stable across the falling SCLK edge
+     * of SPI mode 0 as well: MOSI hold time after that edge should cover the chip's DI hold time.
+     * Only 16 bit greyscale resolution is supported, see {@link SpiFrameEncoder}.
+     * @param transport bus source
+     * @param spiDeviceName SPI device, e.g. "SPI0.0"
+     * @param latch_pin_name GPIO OR-ed with MOSI
+     * @return encoder owning the SPI device and latch pin
+     * @throws IOException
+     * @see SpiFrameEncoder
+     */
+    public static MY9221FrameEncoder openSpi(@NonNull Transport transport, @NonNull String spiDeviceName, @NonNull String latch_pin_name) throws IOException {
+        final SpiBus spi = transport.openSpiBus(spiDeviceName);
+        final Pin latch;
+        try {
+            spi.setMode(SpiBus.MODE0);
+            spi.setFrequency(SpiFrameEncoder.DEFAULT_FREQUENCY);
+            spi.setBitsPerWord(8);
+            spi.setBitJustification(false); // MSB first
+            latch = transport.openPin(latch_pin_name);
+        }
+        catch (IOException ex) {
+            spi.close();
+            throw ex;
+        }
+        try {
+            latch.setDirection(Pin.DIRECTION_OUT_INITIALLY_LOW);
+        }
+        catch (IOException ex) {
+            spi.close();
+            latch.close();
+            throw ex;
+        }
+        return new SpiFrameEncoder(spi, latch);
+    }
+
+    /**
+     * Start new frame and reset bus call counter
+     */
+    abstract void beginFrame();
+
+    /**
+     * @return number of bus calls (GPIO writes, SPI transfers) issued since {@link #beginFrame()}
+     */
+    abstract int getCallCount();
+
+    /**
+     * Shift 16 bits MSB first
+     * @param word 16 bit word
+     * @throws IOException
+     */
+    abstract void writeWord(int word) throws IOException;
+
+    /**
+     * Internal latch: DI low while DCLK is idle, then 4 DI pulses, then idle again.
+     * @param timing how to wait while DCLK is idle
+     * @param delayNanos idle time before and after the pulses
+     * @return achieved latch duration in nanoseconds
+     * @throws IOException
+     */
+    abstract long latch(@NonNull LatchTiming timing, long delayNanos) throws IOException;
+
+    /**
+     * Put all lines low
+     * @throws IOException
+     */
+    abstract void reset() throws IOException;
+
+    /**
+     * @param bits grey scale resolution
+     * @return true if this bus can set given resolution
+     */
+    boolean supportsResolution(int bits) { return true; }
+
+    /**
+     * @return grey scale resolution driver should start with
+     */
+    int defaultResolution() { return 8; }
+}
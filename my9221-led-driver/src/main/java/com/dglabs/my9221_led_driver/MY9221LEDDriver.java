@@ -2,28 +2,49 @@ package com.dglabs.my9221_led_driver;
 
 import android.support.annotation.NonNull;
 
-import com.google.android.things.pio.Gpio;
-import com.google.android.things.pio.PeripheralManagerService;
+import com.dglabs.pio_transport.PeripheralTransport;
+import com.dglabs.pio_transport.Transport;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Created by dennis on 10.03.17.
  */
 
 /**
- * MY9221 LED driver
+ * MY9221 LED driver. Several chips may be daisy-chained on the same DI/DCLK pair, the whole
+ * chain is shifted in one pass and latched once. Frames go out either bit-banged over GPIO or
+ * over SPI, see {@link MY9221FrameEncoder}.
  */
 public class MY9221LEDDriver implements Closeable {
-    private Gpio mDI;
-    private Gpio mDCLK;
-    private boolean clk_flag = false;
+    private MY9221FrameEncoder encoder;
+    private int frameGpioCalls = 0;
+    private LatchTiming latchTiming = LatchTiming.PARK;
+    private long latchDelayNanos = LatchTiming.DEFAULT_DELAY_NANOS;
+    private long latchNanos = 0;
+
+    private int greyscaleBits;
+    private double gamma = 1.0;
+    private final int [] gammaTable = new int[256];
+    private final int chipCount;
+    private final int [] frame;
+    private final int [] shadow;
+    private int shadowCommand = 0;
+    private boolean shadowValid = false;
+    private long suppressedWrites = 0;
 
     private static final int CMD_MODE = 0x0000; // Work on 8-bit mode
+    private static final int CMD_BS_SHIFT = 8;  // grey scale resolution bits of the command word
     private static final int ON = 0x000f;       // 8-bit 1 data
     private static final int SHUT = 0x0000;     // 8-bit 0 data
 
+    /**
+     * number of output channels
+     */
+    public static final int CHANNEL_COUNT = 12;
+
     /**
      * max brightness
      */
@@ -44,74 +65,209 @@ public class MY9221LEDDriver implements Closeable {
      * @throws IOException
      */
     public MY9221LEDDriver(@NonNull String DI_pin_name, @NonNull String DCLK_pin_name) throws IOException {
-        PeripheralManagerService service = new PeripheralManagerService();
-        mDI = service.openGpio(DI_pin_name);
-        mDI.setDirection(Gpio.DIRECTION_OUT_INITIALLY_LOW);
-        mDCLK = service.openGpio(DCLK_pin_name);
-        mDCLK.setDirection(Gpio.DIRECTION_OUT_INITIALLY_LOW);
-        clk_flag = false;
+        this(new PeripheralTransport(), DI_pin_name, DCLK_pin_name);
+    }
+
+    /**
+     * Create and initialize driver on given transport
+     * @param transport pin source, e.g. {@link PeripheralTransport} or simulated one
+     * @param DI_pin_name DI data input
+     * @param DCLK_pin_name DCLK clock input
+     * @throws IOException
+     */
+    public MY9221LEDDriver(@NonNull Transport transport, @NonNull String DI_pin_name, @NonNull String DCLK_pin_name) throws IOException {
+        this(transport, DI_pin_name, DCLK_pin_name, 1);
+    }
+
+    /**
+     * Create and initialize driver for daisy-chained chips on given transport
+     * @param transport pin source, e.g. {@link PeripheralTransport} or simulated one
+     * @param DI_pin_name DI data input of the first chip
+     * @param DCLK_pin_name DCLK clock input of the first chip
+     * @param chipCount number of chips in the chain, 1 or more
+     * @throws IOException
+     */
+    public MY9221LEDDriver(@NonNull Transport transport, @NonNull String DI_pin_name, @NonNull String DCLK_pin_name, int chipCount) throws IOException {
+        this(MY9221FrameEncoder.openGpio(transport, DI_pin_name, DCLK_pin_name), chipCount);
+    }
+
+    /**
+     * Create and initialize driver for daisy-chained chips on given bus
+     * @param encoder GPIO or SPI bus, owned and closed by the driver
+     * @param chipCount number of chips in the chain, 1 or more
+     */
+    public MY9221LEDDriver(@NonNull MY9221FrameEncoder encoder, int chipCount) {
+        if (chipCount < 1) throw new IllegalArgumentException("chipCount should be 1 or more");
+        this.chipCount = chipCount;
+        frame = new int[CHANNEL_COUNT * chipCount];
+        shadow = new int[frame.length];
+        this.encoder = encoder;
+        greyscaleBits = encoder.defaultResolution();
+        buildGammaTable();
     }
 
     @Override
     public void close() throws IOException {
-        if (mDI != null && mDCLK != null) {
+        if (encoder != null) {
             try {
                 clear();
-                mDI.setValue(false);
-                mDCLK.setValue(false);
-                mDI.close();
-                mDCLK.close();
-                clk_flag = false;
+                encoder.reset();
+                encoder.close();
             } finally {
-                mDI = mDCLK = null;
+                encoder = null;
             }
         }
     }
 
     public void clear() throws IOException { lowWrite(0, 0); }
 
-    private void low_write16(long mask) throws IOException {
-        for (int i = 0; i < 16; i++) {
-            mDI.setValue((mask & 1l) != 0);
-            mDCLK.setValue(clk_flag = !clk_flag);
-        }
-        mDI.setValue(false);
+    /**
+     * @return number of daisy-chained chips
+     */
+    public int getChipCount() { return chipCount; }
+
+    /**
+     * @return number of bus calls (GPIO writes, SPI transfers) issued by the last frame
+     */
+    public int getFrameGpioCalls() { return frameGpioCalls; }
+
+    /**
+     * Set how driver waits around the latch sequence
+     * @param latchTiming wait strategy, {@link LatchTiming#PARK} by default
+     * @param delayNanos DCLK idle time before and after latch pulses, at least 220us by datasheet
+     */
+    public void setLatchTiming(@NonNull LatchTiming latchTiming, long delayNanos) {
+        if (delayNanos < 0) throw new IllegalArgumentException("delayNanos should not be negative");
+        this.latchTiming = latchTiming;
+        this.latchDelayNanos = delayNanos;
     }
 
-    private void sendData(int mask, int greyscale) throws IOException
-    {
-        if (greyscale == 0) greyscale = ON;
-        for(int i=0; i<12; i++)
-        {
-            if((mask & (1 << i)) != 0)
-                low_write16(greyscale);
-            else
-                low_write16(SHUT);
+    public LatchTiming getLatchTiming() { return latchTiming; }
+
+    public long getLatchDelayNanos() { return latchDelayNanos; }
+
+    /**
+     * @return achieved duration of the last latch sequence in nanoseconds
+     */
+    public long getLatchNanos() { return latchNanos; }
+
+    /**
+     * Set grey scale resolution of the chip. Brightness values 0-255 passed to the driver are
+     * mapped through the gamma table to the full range of this resolution. The resolution applies
+     * to the output side only: input stays 8-bit, higher resolutions give the gamma curve finer
+     * steps at the dark end.
+     * @param bits 8, 12, 14 or 16
+     */
+    public void setGreyscaleResolution(int bits) {
+        if (bits != 8 && bits != 12 && bits != 14 && bits != 16)
+            throw new IllegalArgumentException("resolution should be 8, 12, 14 or 16 bits");
+        if (!encoder.supportsResolution(bits))
+            throw new IllegalArgumentException(bits + " bits resolution is not supported by this bus");
+        greyscaleBits = bits;
+        buildGammaTable();
+    }
+
+    public int getGreyscaleResolution() { return greyscaleBits; }
+
+    /**
+     * Set gamma correction applied to brightness values. 1.0 is linear, ~2.2 looks linear to the eye.
+     * @param gamma gamma exponent, positive
+     */
+    public void setGamma(double gamma) {
+        if (!(gamma > 0)) throw new IllegalArgumentException("gamma should be positive");
+        this.gamma = gamma;
+        buildGammaTable();
+    }
+
+    public double getGamma() { return gamma; }
+
+    private void buildGammaTable() {
+        final int max = (1 << greyscaleBits) - 1;
+        for (int i = 0; i < gammaTable.length; i++)
+            gammaTable[i] = (int)Math.round(Math.pow(i / 255.0, gamma) * max);
+        // keep dimmest non-zero level visible
+        for (int i = 1; i < gammaTable.length; i++)
+            if (gammaTable[i] == 0) gammaTable[i] = 1;
+    }
+
+    private int commandWord() {
+        switch (greyscaleBits) {
+            case 12: return CMD_MODE | (1 << CMD_BS_SHIFT);
+            case 14: return CMD_MODE | (2 << CMD_BS_SHIFT);
+            case 16: return CMD_MODE | (3 << CMD_BS_SHIFT);
+            default: return CMD_MODE;
         }
     }
 
-    private void latchData() throws IOException {
-        boolean latchFlag = false;
-        try {
-            mDI.setValue(latchFlag);
-            Thread.sleep(1);
-            for (int i = 0; i < 8; i++) {
-                mDI.setValue(latchFlag = !latchFlag);
-            }
-            Thread.sleep(1);
+    /**
+     * @return number of writes skipped because the frame was already latched
+     */
+    public long getSuppressedWrites() { return suppressedWrites; }
+
+    /**
+     * Send the last latched frame again even if nothing changed, e.g. after the chip lost power
+     * @throws IOException
+     */
+    public void forceRefresh() throws IOException {
+        if (!shadowValid) return;
+        System.arraycopy(shadow, 0, frame, 0, frame.length);
+        sendFrame(true);
+    }
+
+    private void sendFrame(boolean force) throws IOException {
+        final int command = commandWord();
+        if (!force && shadowValid && command == shadowCommand && Arrays.equals(frame, shadow)) {
+            suppressedWrites++;
+            frameGpioCalls = 0;
+            return;
+        }
+        // chip state is unknown until the frame is latched completely
+        shadowValid = false;
+        encoder.beginFrame();
+        // first shifted word ends up in the farthest chip
+        for (int chip = chipCount - 1; chip >= 0; chip--) {
+            encoder.writeWord(command);
+            for (int i = 0; i < CHANNEL_COUNT; i++)
+                encoder.writeWord(frame[chip * CHANNEL_COUNT + i]);
         }
-        catch (InterruptedException ex) {}
+        latchNanos = encoder.latch(latchTiming, latchDelayNanos);
+        frameGpioCalls = encoder.getCallCount();
+        System.arraycopy(frame, 0, shadow, 0, frame.length);
+        shadowCommand = command;
+        shadowValid = true;
     }
 
     /**
-     * Write up to 12 bits to driver with given grey scale brightness value
+     * Write up to 12 bits to driver with given grey scale brightness value. Every chip of the chain shows the same bits.
      * @param value 12 bits to highlight (1) or dark (0)
-     * @param brightness variable brightness 1-255
+     * @param brightness variable brightness 1-255, 0 is the dimmest level
      * @throws IOException
+     * @throws IllegalArgumentException if brightness is out of 0-255 range
      */
     public void lowWrite(int value, int brightness) throws IOException {
-        low_write16(CMD_MODE);
-        sendData(value, brightness & 0xFF);
-        latchData();
+        checkBrightness(brightness);
+        final int greyscale = gammaTable[brightness == 0 ? ON : brightness];
+        for (int i = 0; i < frame.length; i++)
+            frame[i] = (value & (1 << (i % CHANNEL_COUNT))) != 0 ? greyscale : SHUT;
+        sendFrame(false);
+    }
+
+    /**
+     * Write individual brightness for every channel in one frame
+     * @param greyscale up to 12 brightness values 0-255 per chip, channel 0 of the first chip first.
+     *                  Missing channels are dark.
+     * @throws IOException
+     * @throws IllegalArgumentException if a value is out of 0-255 range
+     */
+    public void write(@NonNull int [] greyscale) throws IOException {
+        if (greyscale.length > frame.length) throw new IllegalArgumentException("up to " + frame.length + " channels supported");
+        for (int level : greyscale) checkBrightness(level);
+        for (int i = 0; i < frame.length; i++)
+            frame[i] = i < greyscale.length ? gammaTable[greyscale[i]] : SHUT;
+        sendFrame(false);
+    }
+
+    static void checkBrightness(int brightness) {
+        if (brightness < 0 || brightness > BRIGHTNESS_MAX) throw new IllegalArgumentException("brightness should be in range 0-" + BRIGHTNESS_MAX);
     }
 }
@@ -0,0 +1,165 @@
+package com.dglabs.my9221_led_driver;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncLEDBarTest {
+
+    private static final int FAILING_VALUE = 5;
+
+    /**
+     * Records written values. The first write blocks until released, FAILING_VALUE throws
+     */
+    private static class RecordingBar extends LEDBar {
+        final List<Integer> values = new ArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        volatile boolean closed = false;
+
+        RecordingBar() throws IOException {
+            super(new SimulatedTransport(1 << 12), "DI", "DCLK", 10);
+        }
+
+        @Override
+        public void write(int value, int brightness) throws IOException, IllegalArgumentException {
+            entered.countDown();
+            try {
+                released.await();
+            }
+            catch (InterruptedException ex) {
+                throw new IOException(ex);
+            }
+            if (value == FAILING_VALUE) throw new IOException("bus error");
+            synchronized (values) {
+                values.add(value);
+            }
+        }
+
+        List<Integer> values() {
+            synchronized (values) {
+                return new ArrayList<>(values);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+    private RecordingBar bar;
+    private AsyncLEDBar asyncBar;
+
+    @Before
+    public void setUp() throws Exception {
+        bar = new RecordingBar();
+        asyncBar = new AsyncLEDBar(bar);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        bar.released.countDown();
+        asyncBar.close();
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+
+    private static void await(String what, Condition condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.holds()) {
+            if (System.nanoTime() > deadline) fail("timed out waiting for " + what);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void post_keepsNewestPendingFrame() throws Exception {
+        asyncBar.post(1, MY9221LEDDriver.BRIGHTNESS_MAX);
+        assertTrue(bar.entered.await(5, TimeUnit.SECONDS));
+        // writer is busy with the first frame, these replace each other
+        asyncBar.post(2, MY9221LEDDriver.BRIGHTNESS_MAX);
+        asyncBar.post(3, MY9221LEDDriver.BRIGHTNESS_MAX);
+        asyncBar.post(4, MY9221LEDDriver.BRIGHTNESS_MAX);
+        assertEquals(1, asyncBar.getQueueDepth());
+        bar.released.countDown();
+        await("second frame", new Condition() {
+            @Override
+            public boolean holds() { return asyncBar.getWrittenFrames() == 2; }
+        });
+        assertEquals(Arrays.asList(1, 4), bar.values());
+        assertEquals(4, asyncBar.getPostedFrames());
+        assertEquals(2, asyncBar.getDroppedFrames());
+        assertEquals(0, asyncBar.getQueueDepth());
+    }
+
+    @Test
+    public void close_discardsPendingFrameAndClosesBar() throws Exception {
+        asyncBar.post(1, MY9221LEDDriver.BRIGHTNESS_MAX);
+        assertTrue(bar.entered.await(5, TimeUnit.SECONDS));
+        asyncBar.post(2, MY9221LEDDriver.BRIGHTNESS_MAX);
+        final Thread closer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    asyncBar.close();
+                }
+                catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        };
+        closer.start();
+        // closer joins the writer stuck in the first frame
+        await("closer to join writer", new Condition() {
+            @Override
+            public boolean holds() { return closer.getState() == Thread.State.WAITING; }
+        });
+        bar.released.countDown();
+        closer.join(5000);
+        assertFalse(closer.isAlive());
+        assertTrue(bar.closed);
+        assertEquals(Arrays.asList(1), bar.values());
+        assertEquals(1, asyncBar.getWrittenFrames());
+    }
+
+    @Test
+    public void writeError_keepsWriterRunning() throws Exception {
+        bar.released.countDown();
+        asyncBar.post(FAILING_VALUE, MY9221LEDDriver.BRIGHTNESS_MAX);
+        await("write error", new Condition() {
+            @Override
+            public boolean holds() { return asyncBar.getWriteErrors() == 1; }
+        });
+        asyncBar.post(2, MY9221LEDDriver.BRIGHTNESS_MAX);
+        await("next frame", new Condition() {
+            @Override
+            public boolean holds() { return asyncBar.getWrittenFrames() == 1; }
+        });
+        assertEquals(Arrays.asList(2), bar.values());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void post_rejectsValueAboveLedCount() {
+        asyncBar.post(11, MY9221LEDDriver.BRIGHTNESS_MAX);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void post_rejectsBrightnessAbove255() {
+        asyncBar.post(1, 0x100);
+    }
+}
@@ -0,0 +1,247 @@
+package com.dglabs.my9221_led_driver;
+
+import com.dglabs.pio_transport.SimulatedTransport;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MY9221LEDDriverTest {
+
+    // command word of 8, 12, 14 and 16-bit grey scale
+    private static final int CMD_8BIT = 0x0000;
+    private static final int CMD_12BIT = 0x0100;
+    private static final int CMD_14BIT = 0x0200;
+    private static final int CMD_16BIT = 0x0300;
+
+    private SimulatedTransport transport;
+    private MY9221LEDDriver driver;
+    private int latchPulses;
+
+    @Before
+    public void setUp() throws Exception {
+        transport = new SimulatedTransport(1 << 16);
+        driver = new MY9221LEDDriver(transport, "DI", "DCLK");
+        transport.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        driver.close();
+    }
+
+    /**
+     * Decode pin trace into 16-bit words: DI is sampled on every DCLK edge, MSB first.
+     * DI pulses after the last DCLK edge are counted as latch pulses
+     */
+    private List<Integer> words(SimulatedTransport transport) {
+        final List<Integer> result = new ArrayList<>();
+        boolean di = false;
+        int word = 0, bits = 0;
+        latchPulses = 0;
+        for (int i = 0; i < transport.getPinTraceLength(); i++) {
+            final String pin = transport.getPinTracePin(i).getName();
+            final boolean value = transport.getPinTraceValue(i);
+            if (pin.equals("DI")) {
+                if (value && !di) latchPulses++;
+                di = value;
+            }
+            else if (pin.equals("DCLK")) {
+                word = (word << 1) | (di ? 1 : 0);
+                if (++bits % 16 == 0) {
+                    result.add(word & 0xFFFF);
+                    word = 0;
+                }
+                latchPulses = 0;
+            }
+        }
+        assertEquals("whole words per frame", 0, bits % 16);
+        transport.reset();
+        return result;
+    }
+
+    @Test
+    public void lowWrite_sendsCommandAndChannels() throws Exception {
+        driver.lowWrite(0x805, 0xA5);
+        final List<Integer> words = words(transport);
+        assertEquals(13, words.size());
+        assertEquals(CMD_8BIT, (int)words.get(0));
+        for (int i = 0; i < 12; i++)
+            assertEquals("channel " + i, (0x805 & (1 << i)) != 0 ? 0xA5 : 0, (int)words.get(i + 1));
+        assertEquals(4, latchPulses);
+    }
+
+    @Test
+    public void lowWrite_setsDataPinOnlyOnChange() throws Exception {
+        driver.lowWrite(0xFFF, MY9221LEDDriver.BRIGHTNESS_MAX);
+        final SimulatedTransport.SimulatedPin di = transport.getPin("DI");
+        final SimulatedTransport.SimulatedPin dclk = transport.getPin("DCLK");
+        assertEquals(di.getTransitionCount(), di.getWriteCount());
+        // one DCLK edge per bit of 13 words
+        assertEquals(13 * 16, dclk.getWriteCount());
+        assertEquals(di.getWriteCount() + dclk.getWriteCount(), driver.getFrameGpioCalls());
+    }
+
+    @Test
+    public void latch_waitsDelayAroundPulses() throws Exception {
+        int value = 1;
+        for (LatchTiming timing : LatchTiming.values()) {
+            driver.setLatchTiming(timing, 300000);
+            driver.lowWrite(value++, MY9221LEDDriver.BRIGHTNESS_MAX);
+            assertEquals(timing, driver.getLatchTiming());
+            assertTrue(timing + " took " + driver.getLatchNanos(), driver.getLatchNanos() >= 2 * 300000);
+            words(transport);
+            assertEquals(4, latchPulses);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void latch_rejectsNegativeDelay() {
+        driver.setLatchTiming(LatchTiming.SPIN, -1);
+    }
+
+    @Test
+    public void resolution_scalesBrightnessToFullRange() throws Exception {
+        driver.setGreyscaleResolution(16);
+        driver.write(new int[] { 0xFF, 0x80, 0x01, 0 });
+        final List<Integer> words = words(transport);
+        assertEquals(CMD_16BIT, (int)words.get(0));
+        assertEquals(0xFFFF, (int)words.get(1));
+        assertEquals(0x8080, (int)words.get(2));
+        assertEquals(0x0101, (int)words.get(3));
+        assertEquals(0, (int)words.get(4));
+        // missing channels are dark
+        assertEquals(0, (int)words.get(12));
+    }
+
+    @Test
+    public void resolution_selectsCommandWord() throws Exception {
+        driver.setGreyscaleResolution(12);
+        driver.write(new int[] { 0xFF });
+        List<Integer> words = words(transport);
+        assertEquals(CMD_12BIT, (int)words.get(0));
+        assertEquals(0x0FFF, (int)words.get(1));
+        driver.setGreyscaleResolution(14);
+        driver.write(new int[] { 0xFF });
+        words = words(transport);
+        assertEquals(CMD_14BIT, (int)words.get(0));
+        assertEquals(0x3FFF, (int)words.get(1));
+        assertEquals(14, driver.getGreyscaleResolution());
+    }
+
+    @Test
+    public void gamma_keepsDimmestLevelVisible() throws Exception {
+        driver.setGamma(2.2);
+        driver.write(new int[] { 0x01, 0x80, 0xFF });
+        final List<Integer> words = words(transport);
+        assertEquals(1, (int)words.get(1));
+        // mid brightness is dimmed by the curve
+        assertTrue(words.get(2) < 0x80);
+        assertEquals(0xFF, (int)words.get(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resolution_rejectsUnsupportedBits() {
+        driver.setGreyscaleResolution(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void write_rejectsBrightnessAbove255() throws Exception {
+        // would have wrapped to 0 and turned the channel off
+        driver.write(new int[] { 0x80, 0x100 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lowWrite_rejectsNegativeBrightness() throws Exception {
+        driver.lowWrite(0xFFF, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void write_rejectsTooManyChannels() throws Exception {
+        driver.write(new int[13]);
+    }
+
+    @Test
+    public void gpio_sendsFarthestChipFirst() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(1 << 16);
+        final MY9221LEDDriver driver = new MY9221LEDDriver(transport, "DI", "DCLK", 2);
+        try {
+            final int [] greyscale = new int[24];
+            greyscale[0] = 0xFF;
+            greyscale[11] = 0x80;
+            greyscale[12] = 0x01;
+            greyscale[23] = 0x7F;
+            driver.write(greyscale);
+            final List<Integer> words = words(transport);
+            assertEquals(26, words.size());
+            // chip 1 data is shifted through chip 0, so it goes first
+            assertEquals(CMD_8BIT, (int)words.get(0));
+            assertEquals(0x01, (int)words.get(1));
+            assertEquals(0x7F, (int)words.get(12));
+            assertEquals(CMD_8BIT, (int)words.get(13));
+            assertEquals(0xFF, (int)words.get(14));
+            assertEquals(0x80, (int)words.get(25));
+            for (int i = 2; i < 12; i++) assertEquals(0, (int)words.get(i));
+            assertEquals(4, latchPulses);
+        }
+        finally {
+            driver.close();
+        }
+    }
+
+    @Test
+    public void gpio_lowWriteRepeatsMaskOnEveryChip() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(1 << 16);
+        final MY9221LEDDriver driver = new MY9221LEDDriver(transport, "DI", "DCLK", 3);
+        try {
+            driver.lowWrite(0x001, MY9221LEDDriver.BRIGHTNESS_MAX);
+            final List<Integer> words = words(transport);
+            assertEquals(39, words.size());
+            for (int chip = 0; chip < 3; chip++) {
+                assertEquals(CMD_8BIT, (int)words.get(chip * 13));
+                assertEquals(0xFF, (int)words.get(chip * 13 + 1));
+                assertEquals(0, (int)words.get(chip * 13 + 2));
+            }
+        }
+        finally {
+            driver.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gpio_rejectsEmptyChain() throws Exception {
+        new MY9221LEDDriver(new SimulatedTransport(16), "DI", "DCLK", 0);
+    }
+
+    @Test
+    public void gpio_skipsUnchangedFrame() throws Exception {
+        driver.lowWrite(0x005, MY9221LEDDriver.BRIGHTNESS_MED);
+        final List<Integer> words = words(transport);
+        assertEquals(13, words.size());
+        assertEquals(MY9221LEDDriver.BRIGHTNESS_MED, (int)words.get(1));
+        assertEquals(0, (int)words.get(2));
+        assertEquals(MY9221LEDDriver.BRIGHTNESS_MED, (int)words.get(3));
+        driver.lowWrite(0x005, MY9221LEDDriver.BRIGHTNESS_MED);
+        assertEquals(0, transport.getPinTraceLength());
+        assertEquals(1, driver.getSuppressedWrites());
+        driver.forceRefresh();
+        assertEquals(words, words(transport));
+    }
+
+    @Test
+    public void gpio_resendsFrameAfterResolutionChange() throws Exception {
+        driver.write(new int[] { 0xFF });
+        words(transport);
+        driver.setGreyscaleResolution(16);
+        driver.write(new int[] { 0xFF });
+        final List<Integer> words = words(transport);
+        assertEquals(CMD_16BIT, (int)words.get(0));
+        assertEquals(0xFFFF, (int)words.get(1));
+        assertEquals(0, driver.getSuppressedWrites());
+    }
+}
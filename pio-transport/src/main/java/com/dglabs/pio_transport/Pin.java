@@ -0,0 +1,30 @@
+package com.dglabs.pio_transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Single digital pin opened through a {@link Transport}.
+ * Mirrors the subset of {@link com.google.android.things.pio.Gpio} used by the drivers.
+ */
+public interface Pin extends Closeable {
+    int DIRECTION_IN = 0;
+    int DIRECTION_OUT_INITIALLY_HIGH = 1;
+    int DIRECTION_OUT_INITIALLY_LOW = 2;
+
+    /**
+     * @return pin name this object was opened with
+     */
+    String getName();
+
+    /**
+     * Set pin direction
+     * @param direction one of DIRECTION_IN, DIRECTION_OUT_INITIALLY_HIGH, DIRECTION_OUT_INITIALLY_LOW
+     * @throws IOException
+     */
+    void setDirection(int direction) throws IOException;
+
+    void setValue(boolean value) throws IOException;
+
+    boolean getValue() throws IOException;
+}
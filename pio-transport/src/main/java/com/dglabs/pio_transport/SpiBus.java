@@ -0,0 +1,48 @@
+package com.dglabs.pio_transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * SPI device opened through a {@link Transport}.
+ * Mirrors the subset of {@link com.google.android.things.pio.SpiDevice} used by the drivers.
+ */
+public interface SpiBus extends Closeable {
+    int MODE0 = 0;
+    int MODE1 = 1;
+    int MODE2 = 2;
+    int MODE3 = 3;
+
+    /**
+     * @return SPI device name this object was opened with
+     */
+    String getName();
+
+    void setMode(int mode) throws IOException;
+
+    void setFrequency(int frequencyHz) throws IOException;
+
+    void setDelay(int delayUs) throws IOException;
+
+    void setBitsPerWord(int bitsPerWord) throws IOException;
+
+    /**
+     * @param lsbFirst true to shift out least significant bit first
+     * @throws IOException
+     */
+    void setBitJustification(boolean lsbFirst) throws IOException;
+
+    void setCsChange(boolean csChange) throws IOException;
+
+    /**
+     * Write first length bytes of the buffer
+     * @throws IOException
+     */
+    void write(byte [] buffer, int length) throws IOException;
+
+    /**
+     * Read length bytes into the buffer
+     * @throws IOException
+     */
+    void read(byte [] buffer, int length) throws IOException;
+}
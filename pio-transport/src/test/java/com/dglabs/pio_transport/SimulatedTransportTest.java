@@ -0,0 +1,71 @@
+package com.dglabs.pio_transport;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SimulatedTransportTest {
+
+    @Test
+    public void pinTrace_keepsLastTransitions() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(4);
+        final Pin a = transport.openPin("A");
+        final Pin b = transport.openPin("B");
+        a.setDirection(Pin.DIRECTION_OUT_INITIALLY_LOW);
+        b.setDirection(Pin.DIRECTION_OUT_INITIALLY_LOW);
+        a.setValue(true);
+        a.setValue(true);
+        b.setValue(true);
+        a.setValue(false);
+        b.setValue(false);
+        a.setValue(true);
+        // equal levels are writes, not transitions
+        assertEquals(6, transport.getPinWriteCount());
+        assertEquals(5, transport.getPinTransitionCount());
+        assertEquals(4, transport.getPinTraceLength());
+        final String [] pins = {"B", "A", "B", "A"};
+        final boolean [] values = {true, false, false, true};
+        for (int i = 0; i < pins.length; i++) {
+            assertEquals(pins[i], transport.getPinTracePin(i).getName());
+            assertEquals(values[i], transport.getPinTraceValue(i));
+        }
+        transport.reset();
+        assertEquals(0, transport.getPinTraceLength());
+        assertTrue(transport.getPin("A").getOutputValue());
+    }
+
+    @Test
+    public void spiTrace_keepsLastBytes() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport(3);
+        final SpiBus spi = transport.openSpiBus("SPI0.0");
+        spi.write(new byte[] {1, 2, 3, 4}, 2);
+        spi.write(new byte[] {3, 4, 5}, 3);
+        final SimulatedTransport.SimulatedSpiBus bus = transport.getSpiBus("SPI0.0");
+        assertArrayEquals(new byte[] {3, 4, 5}, bus.getTrace());
+        assertEquals(2, bus.getWriteCount());
+        assertEquals(5, bus.getBytesWritten());
+    }
+
+    @Test
+    public void spiRead_repeatsReadData() throws Exception {
+        final SimulatedTransport transport = new SimulatedTransport();
+        final SpiBus spi = transport.openSpiBus("SPI0.0");
+        final byte [] buffer = new byte[5];
+        spi.read(buffer, buffer.length);
+        assertArrayEquals(new byte[5], buffer);
+        transport.getSpiBus("SPI0.0").setReadData(new byte[] {7, 8});
+        spi.read(buffer, 3);
+        assertArrayEquals(new byte[] {7, 8, 7, 0, 0}, buffer);
+        spi.read(buffer, buffer.length);
+        assertArrayEquals(new byte[] {8, 7, 8, 7, 8}, buffer);
+    }
+
+    @Test(expected = IOException.class)
+    public void closedPin_rejectsWrites() throws Exception {
+        final Pin pin = new SimulatedTransport().openPin("A");
+        pin.close();
+        pin.setValue(true);
+    }
+}